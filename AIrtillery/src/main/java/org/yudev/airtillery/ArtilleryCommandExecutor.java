@@ -20,9 +20,9 @@ public class ArtilleryCommandExecutor implements CommandExecutor, TabCompleter {
     private final List<String> PROJECTILE_TYPES = Arrays.asList(
             "ARROW", "FLAMING_ARROW", "TRIDENT",
             "SPLASH_POTION", "LINGERING_POTION", "TNT");
-    private final List<String> PATTERNS = Arrays.asList("UNIFORM", "CONCENTRATED", "RANDOM");
     private final List<String> FIRE_MODES = Arrays.asList("RAIN", "BURST");
     private final List<String> BOOLEANS = Arrays.asList("true", "false");
+    private final List<String> TARGET_COUNTS = Arrays.asList("1", "2", "3", "5");
     private final List<String> POTION_EFFECTS = Arrays.stream(PotionEffectType.values())
             .filter(effect -> effect != null)
             .map(effect -> effect.getName().toUpperCase())
@@ -43,7 +43,7 @@ public class ArtilleryCommandExecutor implements CommandExecutor, TabCompleter {
         Player player = (Player) sender;
 
         if (args.length < 7) {
-            player.sendMessage(ChatColor.RED + "Использование: /giveartillery <isDebug> <FireMode> <Projectile> <Pattern> <MAX_RANGE> <Projectile_count> <R> [PotionEffect] [PotionDuration] [PotionAmplifier]");
+            player.sendMessage(ChatColor.RED + "Использование: /giveartillery <isDebug> <FireMode> <Projectile> <Pattern> <MAX_RANGE> <Projectile_count> <R> [Targets] [PotionEffect] [PotionDuration] [PotionAmplifier]");
             return false;
         }
 
@@ -83,34 +83,48 @@ public class ArtilleryCommandExecutor implements CommandExecutor, TabCompleter {
                 return true;
             }
 
-            if (!PATTERNS.contains(pattern)) {
+            if (!artilleryManager.getBarragePatterns().contains(pattern)) {
                 player.sendMessage(ChatColor.RED + "Неизвестный паттерн. Допустимые паттерны: "
-                        + String.join(", ", PATTERNS));
+                        + String.join(", ", artilleryManager.getBarragePatterns().getNames()));
                 return true;
             }
 
+            // Число целей необязательно и отличается от эффекта зелья тем, что это число
+            int maxTargets = 1;
+            int potionArgs = 7;
+            if (args.length > 7 && isInteger(args[7])) {
+                maxTargets = Integer.parseInt(args[7]);
+                potionArgs = 8;
+
+                if (maxTargets <= 0) {
+                    player.sendMessage(ChatColor.RED + "Targets должен быть положительным числом");
+                    return true;
+                }
+            }
+
             String potionEffect = null;
             int potionDuration = 200;
             int potionAmplifier = 0;
 
-            if ((projectileType.equals("SPLASH_POTION") || projectileType.equals("LINGERING_POTION")) && args.length > 7) {
-                potionEffect = args[7].toUpperCase();
+            if ((projectileType.equals("SPLASH_POTION") || projectileType.equals("LINGERING_POTION"))
+                    && args.length > potionArgs) {
+                potionEffect = args[potionArgs].toUpperCase();
 
                 if (PotionEffectType.getByName(potionEffect) == null) {
                     player.sendMessage(ChatColor.RED + "Неизвестный эффект зелья: " + potionEffect);
                     return true;
                 }
 
-                if (args.length > 8) {
-                    potionDuration = Integer.parseInt(args[8]);
+                if (args.length > potionArgs + 1) {
+                    potionDuration = Integer.parseInt(args[potionArgs + 1]);
                     if (potionDuration <= 0) {
                         player.sendMessage(ChatColor.RED + "Длительность эффекта должна быть положительным числом");
                         return true;
                     }
                 }
 
-                if (args.length > 9) {
-                    potionAmplifier = Integer.parseInt(args[9]);
+                if (args.length > potionArgs + 2) {
+                    potionAmplifier = Integer.parseInt(args[potionArgs + 2]);
                     if (potionAmplifier < 0) {
                         player.sendMessage(ChatColor.RED + "Уровень эффекта должен быть неотрицательным числом");
                         return true;
@@ -119,7 +133,7 @@ public class ArtilleryCommandExecutor implements CommandExecutor, TabCompleter {
             }
 
             artilleryManager.giveArtilleryItem(player, isDebug, fireMode, projectileType, pattern,
-                    maxRange, projectileCount, radius, potionEffect, potionDuration, potionAmplifier);
+                    maxRange, projectileCount, radius, maxTargets, potionEffect, potionDuration, potionAmplifier);
 
             return true;
         } catch (NumberFormatException e) {
@@ -138,34 +152,46 @@ public class ArtilleryCommandExecutor implements CommandExecutor, TabCompleter {
             } else if (args.length == 3) {
                 return filterStartingWith(args[2], PROJECTILE_TYPES);
             } else if (args.length == 4) {
-                return filterStartingWith(args[3], PATTERNS);
+                return filterStartingWith(args[3], artilleryManager.getBarragePatterns().getNames());
             } else if (args.length == 5) {
                 return filterStartingWith(args[4], Arrays.asList("50", "100", "150", "200"));
             } else if (args.length == 6) {
                 return filterStartingWith(args[5], Arrays.asList("1", "5", "10", "20"));
             } else if (args.length == 7) {
                 return filterStartingWith(args[6], Arrays.asList("0", "3", "5", "10"));
-            } else if (args.length == 8) {
-                String projectileType = args[2].toUpperCase();
-                if (projectileType.equals("SPLASH_POTION") || projectileType.equals("LINGERING_POTION")) {
-                    return filterStartingWith(args[7], POTION_EFFECTS);
-                }
-            } else if (args.length == 9) {
-                String projectileType = args[2].toUpperCase();
-                if (projectileType.equals("SPLASH_POTION") || projectileType.equals("LINGERING_POTION")) {
-                    return filterStartingWith(args[8], Arrays.asList("100", "200", "400", "600"));
-                }
-            } else if (args.length == 10) {
-                String projectileType = args[2].toUpperCase();
-                if (projectileType.equals("SPLASH_POTION") || projectileType.equals("LINGERING_POTION")) {
-                    return filterStartingWith(args[9], Arrays.asList("0", "1", "2", "3"));
+            }
+
+            String projectileType = args[2].toUpperCase();
+            boolean isPotion = projectileType.equals("SPLASH_POTION") || projectileType.equals("LINGERING_POTION");
+            int potionArgs = args.length > 8 && isInteger(args[7]) ? 8 : 7;
+
+            if (args.length == 8) {
+                List<String> options = new ArrayList<>(TARGET_COUNTS);
+                if (isPotion) {
+                    options.addAll(POTION_EFFECTS);
                 }
+                return filterStartingWith(args[7], options);
+            } else if (isPotion && args.length == potionArgs + 1) {
+                return filterStartingWith(args[potionArgs], POTION_EFFECTS);
+            } else if (isPotion && args.length == potionArgs + 2) {
+                return filterStartingWith(args[potionArgs + 1], Arrays.asList("100", "200", "400", "600"));
+            } else if (isPotion && args.length == potionArgs + 3) {
+                return filterStartingWith(args[potionArgs + 2], Arrays.asList("0", "1", "2", "3"));
             }
         }
 
         return new ArrayList<>();
     }
 
+    private static boolean isInteger(String value) {
+        try {
+            Integer.parseInt(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
     private List<String> filterStartingWith(String prefix, List<String> options) {
         return options.stream()
                 .filter(option -> option.toLowerCase().startsWith(prefix.toLowerCase()))
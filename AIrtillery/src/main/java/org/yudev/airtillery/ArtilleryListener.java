@@ -2,11 +2,14 @@ package org.yudev.airtillery;
 
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
+import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.ItemStack;
 
@@ -32,24 +35,31 @@ public class ArtilleryListener implements Listener {
         Player player = event.getPlayer();
         ItemStack item = event.getItem();
 
-        if (item != null && artilleryManager.isArtilleryItem(item)) {
+        ArtilleryManager.ArtillerySettings settings = artilleryManager.getArtillerySettings(item);
+        if (settings != null) {
             event.setCancelled(true);
 
-            ArtilleryManager.ArtillerySettings settings = artilleryManager.getArtillerySettings(item);
-            if (settings == null) {
-                player.sendMessage(ChatColor.RED + "Ошибка получения настроек артиллерии");
+            EmplacementManager emplacementManager = plugin.getEmplacementManager();
+            if (emplacementManager != null && player.isSneaking() && event.getAction() == Action.RIGHT_CLICK_BLOCK) {
+                Block against = event.getClickedBlock();
+                emplacementManager.place(player, against.getRelative(event.getBlockFace()), against, item, settings);
                 return;
             }
 
             Location launchLocation = player.getLocation().clone().add(0, 3, 0);
 
-            if (!plugin.getPythonClient().isServerAvailable()) {
-                player.sendMessage(ChatColor.RED + "Python-сервер недоступен. Обстрел невозможен.");
-                return;
-            }
-
             player.sendMessage(ChatColor.YELLOW + "Подготовка артиллерийского обстрела...");
             artilleryManager.fireArtillery(player, launchLocation, settings);
         }
     }
+
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        artilleryManager.onPlayerJoin(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        artilleryManager.cancelFire(event.getPlayer().getUniqueId());
+    }
 }
@@ -6,6 +6,7 @@ import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Particle;
 import org.bukkit.Particle.DustOptions;
+import org.bukkit.World;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.entity.*;
 import org.bukkit.inventory.ItemFlag;
@@ -15,24 +16,49 @@ import org.bukkit.inventory.meta.PotionMeta;
 import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.NamespacedKey;
-import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.util.Vector;
+import org.yudev.ballistics.BallisticProfile;
+import org.yudev.ballistics.InterceptSolver;
+import org.yudev.ballistics.LaunchOptimizer;
+import org.yudev.ballistics.MotionModel;
+import org.yudev.ballistics.TntMotionModel;
+import org.yudev.ballistics.TrajectoryAtlas;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
 
 public class ArtilleryManager {
     private final ArtilleryPlugin plugin;
+    private final ArtilleryScheduler scheduler;
     private final PythonClient pythonClient;
     private final Random random = new Random();
     private final double heightRatio;
+    private final double maxTargetDrift;
+    private final int maxTargetsLimit;
 
+    /**
+     * Расчет точек залпа идет в одном потоке: шаблоны залпа и их буфер не потокобезопасны
+     */
+    private final ExecutorService planner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AIrtillery-Planner");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<UUID, FireRequest> activeFires = new ConcurrentHashMap<>();
+
+    private final NamespacedKey SETTINGS_KEY;
     private final NamespacedKey IS_ARTILLERY_KEY;
     private final NamespacedKey DEBUG_KEY;
     private final NamespacedKey FIRE_MODE_KEY;
@@ -45,14 +71,81 @@ public class ArtilleryManager {
     private final NamespacedKey POTION_DURATION_KEY;
     private final NamespacedKey POTION_AMPLIFIER_KEY;
 
-    private final Map<Entity, BukkitTask> firedProjectiles = new HashMap<>();
-    private final Map<Entity, BukkitTask> visualizationTasks = new HashMap<>();
+    private final PotionTemplateCache potionTemplates = new PotionTemplateCache();
+    private final ArtillerySettingsCodec settingsCodec = new ArtillerySettingsCodec();
+    private final BarragePatterns barragePatterns = new BarragePatterns();
+    private double[] patternOffsets = new double[64 * BarragePattern.STRIDE];
+    private final InFlightBudget inFlightBudget;
+    private final ProjectileRegistry projectileTracker;
+    private final AsyncExplosionService asyncExplosions;
+
+    /**
+     * Единственный регион обычного сервера; null на Folia, где регионы создаются по секциям чанков
+     */
+    private final ArtilleryRegion mainRegion;
+    private final Map<UUID, Map<Long, ArtilleryRegion>> regions = new ConcurrentHashMap<>();
+    private final int regionShift;
+
+    private final LaunchOptimizer launchOptimizer;
+    private final Map<BallisticProfile, Double> maxLaunchVelocities = new EnumMap<>(BallisticProfile.class);
+    private final Map<BallisticProfile, TrajectoryAtlas> trajectoryAtlases = new ConcurrentHashMap<>();
+    private volatile TntMotionModel tntMotionModel;
+
+    private final TargetMotionTracker targetMotionTracker;
+    private final InterceptSolver interceptSolver;
 
     public ArtilleryManager(ArtilleryPlugin plugin, PythonClient pythonClient) {
         this.plugin = plugin;
+        this.scheduler = plugin.getArtilleryScheduler();
         this.pythonClient = pythonClient;
         this.heightRatio = plugin.getConfig().getDouble("height-ratio", 0.2);
+        this.maxTargetDrift = plugin.getConfig().getDouble("fire-pipeline.max-target-drift", 6.0);
+        this.maxTargetsLimit = Math.max(1, plugin.getConfig().getInt("multi-target.max-targets", 8));
+        this.inFlightBudget = new InFlightBudget(plugin);
+        this.regionShift = Math.max(0, Math.min(8, plugin.getConfig().getInt("regionized.section-shift", 4)));
+
+        if (scheduler.isRegionized()) {
+            // Снимок и применение асинхронного взрыва рассчитаны на основной поток
+            this.asyncExplosions = null;
+            this.mainRegion = null;
+            this.projectileTracker = new EntityProjectileTracker(plugin, scheduler, inFlightBudget,
+                    this::regionAt, this::onProjectileGrounded);
+        } else {
+            this.asyncExplosions = plugin.getConfig().getBoolean("async-explosions.enabled", true)
+                    ? new AsyncExplosionService(plugin)
+                    : null;
+            this.mainRegion = new ArtilleryRegion(plugin, scheduler, inFlightBudget, asyncExplosions, null, null);
+            this.projectileTracker = new ProjectileTracker(plugin, inFlightBudget, mainRegion.getParticleService(),
+                    mainRegion.getTimingWheel(), this::onProjectileGrounded);
+        }
+
+        if (plugin.getConfig().getBoolean("launch-optimizer.enabled", true)) {
+            this.launchOptimizer = new LaunchOptimizer(
+                    Math.toRadians(plugin.getConfig().getDouble("launch-optimizer.min-angle", 10)),
+                    Math.toRadians(plugin.getConfig().getDouble("launch-optimizer.max-angle", 70)),
+                    plugin.getConfig().getDouble("launch-optimizer.clearance", 3.0));
+        } else {
+            this.launchOptimizer = null;
+        }
 
+        for (BallisticProfile profile : BallisticProfile.values()) {
+            maxLaunchVelocities.put(profile, plugin.getConfig().getDouble(
+                    "launch-optimizer.max-velocity." + profile.name(), profile.getMaxVelocity()));
+        }
+
+        if (plugin.getConfig().getBoolean("target-prediction.enabled", true)) {
+            this.targetMotionTracker = new TargetMotionTracker(plugin, scheduler,
+                    plugin.getConfig().getInt("target-prediction.history-size", 10),
+                    plugin.getConfig().getInt("target-prediction.sample-interval", 2));
+            this.targetMotionTracker.start();
+            this.interceptSolver = new InterceptSolver(
+                    plugin.getConfig().getDouble("target-prediction.max-lead-ticks", 200));
+        } else {
+            this.targetMotionTracker = null;
+            this.interceptSolver = null;
+        }
+
+        this.SETTINGS_KEY = new NamespacedKey(plugin, "settings");
         this.IS_ARTILLERY_KEY = new NamespacedKey(plugin, "is_artillery");
         this.DEBUG_KEY = new NamespacedKey(plugin, "debug");
         this.FIRE_MODE_KEY = new NamespacedKey(plugin, "fire_mode");
@@ -70,8 +163,39 @@ public class ArtilleryManager {
      * Создает и выдает артиллерийский предмет игроку
      */
     public void giveArtilleryItem(Player player, boolean isDebug, String fireMode, String projectileType,
-                                  String pattern, int maxRange, int projectileCount, double radius,
+                                  String pattern, int maxRange, int projectileCount, double radius, int maxTargets,
                                   String potionEffect, int potionDuration, int potionAmplifier) {
+        ArtillerySettings settings = new ArtillerySettings(isDebug, fireMode, projectileType, pattern,
+                maxRange, projectileCount, radius, maxTargets, potionEffect, potionDuration, potionAmplifier);
+
+        ItemStack item = createArtilleryItem(settings);
+        if (item == null) {
+            player.sendMessage(ChatColor.RED + "Неизвестный тип снаряда: " + projectileType);
+            return;
+        }
+
+        player.getInventory().addItem(item);
+        player.sendMessage(ChatColor.GREEN + "Вы получили " + item.getItemMeta().getDisplayName());
+    }
+
+    /**
+     * Артиллерийский предмет с заданными настройками, например для возврата из разобранной установки
+     *
+     * @return null для неизвестного типа снаряда
+     */
+    public ItemStack createArtilleryItem(ArtillerySettings settings) {
+        boolean isDebug = settings.isDebug();
+        String fireMode = settings.getFireMode();
+        String projectileType = settings.getProjectileType();
+        String pattern = settings.getPattern();
+        int maxRange = settings.getMaxRange();
+        int projectileCount = settings.getProjectileCount();
+        double radius = settings.getRadius();
+        int maxTargets = settings.getMaxTargets();
+        String potionEffect = settings.getPotionEffect();
+        int potionDuration = settings.getPotionDuration();
+        int potionAmplifier = settings.getPotionAmplifier();
+
         Material material;
         String displayName;
 
@@ -101,8 +225,7 @@ public class ArtilleryManager {
                 displayName = ChatColor.RED + "Артиллерия с динамитом";
                 break;
             default:
-                player.sendMessage(ChatColor.RED + "Неизвестный тип снаряда: " + projectileType);
-                return;
+                return null;
         }
 
         ItemStack item = new ItemStack(material);
@@ -133,6 +256,9 @@ public class ArtilleryManager {
         lore.add(ChatColor.GRAY + "Макс. дальность: " + maxRange);
         lore.add(ChatColor.GRAY + "Количество снарядов: " + projectileCount);
         lore.add(ChatColor.GRAY + "Радиус рассеивания: " + radius);
+        if (maxTargets > 1) {
+            lore.add(ChatColor.GRAY + "Целей за залп: до " + maxTargets);
+        }
 
         if ((projectileType.equals("SPLASH_POTION") || projectileType.equals("LINGERING_POTION"))
                 && potionEffect != null) {
@@ -143,33 +269,22 @@ public class ArtilleryManager {
 
         lore.add("");
         lore.add(ChatColor.YELLOW + "ПКМ чтобы запустить артиллерию");
+        if (plugin.getConfig().getBoolean("emplacements.enabled", true)) {
+            lore.add(ChatColor.YELLOW + "Shift+ПКМ по блоку чтобы поставить установку");
+        }
 
         meta.setLore(lore);
 
-        PersistentDataContainer dataContainer = meta.getPersistentDataContainer();
-        dataContainer.set(IS_ARTILLERY_KEY, PersistentDataType.BYTE, (byte) 1);
-        dataContainer.set(DEBUG_KEY, PersistentDataType.BYTE, isDebug ? (byte) 1 : (byte) 0);
-        dataContainer.set(FIRE_MODE_KEY, PersistentDataType.STRING, fireMode);
-        dataContainer.set(PROJECTILE_TYPE_KEY, PersistentDataType.STRING, projectileType);
-        dataContainer.set(PATTERN_KEY, PersistentDataType.STRING, pattern);
-        dataContainer.set(MAX_RANGE_KEY, PersistentDataType.INTEGER, maxRange);
-        dataContainer.set(PROJECTILE_COUNT_KEY, PersistentDataType.INTEGER, projectileCount);
-        dataContainer.set(RADIUS_KEY, PersistentDataType.DOUBLE, radius);
-
-        if (potionEffect != null) {
-            dataContainer.set(POTION_EFFECT_KEY, PersistentDataType.STRING, potionEffect);
-            dataContainer.set(POTION_DURATION_KEY, PersistentDataType.INTEGER, potionDuration);
-            dataContainer.set(POTION_AMPLIFIER_KEY, PersistentDataType.INTEGER, potionAmplifier);
-        }
+        long itemId = ThreadLocalRandom.current().nextLong();
+        meta.getPersistentDataContainer().set(SETTINGS_KEY, PersistentDataType.BYTE_ARRAY,
+                settingsCodec.encode(itemId, settings));
 
         item.setItemMeta(meta);
-
-        player.getInventory().addItem(item);
-        player.sendMessage(ChatColor.GREEN + "Вы получили " + displayName);
+        return item;
     }
 
 
-    private Color getPotionColor(PotionEffectType type) {
+    static Color getPotionColor(PotionEffectType type) {
         if (type == PotionEffectType.HARM || type == PotionEffectType.POISON) {
             return Color.fromRGB(124, 39, 8);
         } else if (type == PotionEffectType.HEAL || type == PotionEffectType.REGENERATION) {
@@ -184,32 +299,49 @@ public class ArtilleryManager {
     }
 
     public boolean isArtilleryItem(ItemStack item) {
+        return getArtillerySettings(item) != null;
+    }
+
+    /**
+     * Настройки артиллерийского предмета за одно чтение тега
+     *
+     * @return null, если предмет не артиллерийский или его данные повреждены
+     */
+    public ArtillerySettings getArtillerySettings(ItemStack item) {
         if (item == null || !item.hasItemMeta()) {
-            return false;
+            return null;
         }
 
-        ItemMeta meta = item.getItemMeta();
-        PersistentDataContainer dataContainer = meta.getPersistentDataContainer();
+        PersistentDataContainer dataContainer = item.getItemMeta().getPersistentDataContainer();
 
-        return dataContainer.has(IS_ARTILLERY_KEY, PersistentDataType.BYTE) &&
-                dataContainer.get(IS_ARTILLERY_KEY, PersistentDataType.BYTE) == (byte) 1;
+        byte[] data = dataContainer.get(SETTINGS_KEY, PersistentDataType.BYTE_ARRAY);
+        if (data != null) {
+            return settingsCodec.decode(data);
+        }
+
+        return readLegacySettings(dataContainer);
     }
 
-    public ArtillerySettings getArtillerySettings(ItemStack item) {
-        if (!isArtilleryItem(item)) {
+    /**
+     * Предметы, выданные до перехода на двоичный формат, хранят каждое поле в отдельном теге
+     */
+    private ArtillerySettings readLegacySettings(PersistentDataContainer dataContainer) {
+        Byte isArtillery = dataContainer.get(IS_ARTILLERY_KEY, PersistentDataType.BYTE);
+        if (isArtillery == null || isArtillery != (byte) 1) {
             return null;
         }
 
-        ItemMeta meta = item.getItemMeta();
-        PersistentDataContainer dataContainer = meta.getPersistentDataContainer();
-
-        boolean isDebug = dataContainer.get(DEBUG_KEY, PersistentDataType.BYTE) == (byte) 1;
+        boolean isDebug = dataContainer.getOrDefault(DEBUG_KEY, PersistentDataType.BYTE, (byte) 0) == (byte) 1;
         String fireMode = dataContainer.getOrDefault(FIRE_MODE_KEY, PersistentDataType.STRING, "RAIN");
         String projectileType = dataContainer.get(PROJECTILE_TYPE_KEY, PersistentDataType.STRING);
         String pattern = dataContainer.get(PATTERN_KEY, PersistentDataType.STRING);
-        int maxRange = dataContainer.get(MAX_RANGE_KEY, PersistentDataType.INTEGER);
-        int projectileCount = dataContainer.get(PROJECTILE_COUNT_KEY, PersistentDataType.INTEGER);
-        double radius = dataContainer.get(RADIUS_KEY, PersistentDataType.DOUBLE);
+        Integer maxRange = dataContainer.get(MAX_RANGE_KEY, PersistentDataType.INTEGER);
+        Integer projectileCount = dataContainer.get(PROJECTILE_COUNT_KEY, PersistentDataType.INTEGER);
+        Double radius = dataContainer.get(RADIUS_KEY, PersistentDataType.DOUBLE);
+
+        if (projectileType == null || pattern == null || maxRange == null || projectileCount == null || radius == null) {
+            return null;
+        }
 
         String potionEffect = null;
         int potionDuration = 200;
@@ -222,7 +354,7 @@ public class ArtilleryManager {
         }
 
         return new ArtillerySettings(isDebug, fireMode, projectileType, pattern,
-                maxRange, projectileCount, radius,
+                maxRange, projectileCount, radius, 1,
                 potionEffect, potionDuration, potionAmplifier);
     }
 
@@ -237,335 +369,699 @@ public class ArtilleryManager {
         }
     }
 
+    /**
+     * Запускает обстрел поэтапно: снимок цели в основном потоке, расчет точек залпа в потоке
+     * планировщика, запрос скоростей к Python-серверу в асинхронной задаче и запуск снарядов
+     * снова в основном потоке. Между этапами запрос можно отменить.
+     * На Folia вместо основного потока этапы идут в потоке региона точки запуска
+     */
     public void fireArtillery(Player player, Location launchLocation, ArtillerySettings settings) {
-        if (!pythonClient.isServerAvailable()) {
-            player.sendMessage(ChatColor.RED + "Python-сервер недоступен. Обстрел невозможен.");
+        long start = System.nanoTime();
+
+        if (activeFires.containsKey(player.getUniqueId())) {
+            player.sendMessage(ChatColor.RED + "Предыдущий обстрел еще готовится");
             return;
         }
 
-        Entity target = findTarget(player, launchLocation, settings.isDebug(), settings.getMaxRange());
-        if (target == null) {
+        Entity[] targets = findTargets(player, launchLocation, settings.isDebug(), settings.getMaxRange(),
+                getTargetLimit(settings));
+        if (targets.length == 0) {
             player.sendMessage(ChatColor.RED + "Цель не найдена в пределах " + settings.getMaxRange() + " блоков");
             return;
         }
 
-        Location targetLocation = target.getLocation();
-        double horizontalDistance = Math.sqrt(
-                Math.pow(targetLocation.getX() - launchLocation.getX(), 2) +
-                        Math.pow(targetLocation.getZ() - launchLocation.getZ(), 2)
-        );
-        double heightDifference = targetLocation.getY() - launchLocation.getY();
-        double actualHeightRatio = Math.abs(heightDifference) / horizontalDistance;
-        double maxAllowedHeightDifference = horizontalDistance * heightRatio;
-
-        if (actualHeightRatio > heightRatio) {
-            player.sendMessage(ChatColor.RED + "Невозможно запустить артиллерию: слишком большая разница высот!");
-            player.sendMessage(ChatColor.RED + "Максимально допустимая разница высот: " +
-                    String.format("%.1f", maxAllowedHeightDifference) + " блоков");
-            player.sendMessage(ChatColor.RED + "Текущая разница высот: " +
-                    String.format("%.1f", Math.abs(heightDifference)) + " блоков");
-            return;
+        Location[] targetSnapshots = new Location[targets.length];
+        Vector[] targetVelocities = new Vector[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            targetSnapshots[i] = targets[i].getLocation();
+            targetVelocities[i] = estimateTargetVelocity(targets[i]);
+        }
+
+        snapshotStage(ArtilleryShooter.of(player), launchLocation, settings,
+                targets, targetSnapshots, targetVelocities, start);
+    }
+
+    /**
+     * Обстрел от установки. Цели, их положения и скорости уже найдены общим поиском
+     * для соседних установок, так что здесь остается только допуск залпа и расчет
+     *
+     * @return false, если у установки уже готовится или летит залп, либо залп отклонен лимитом
+     */
+    public boolean fireFromEmplacement(ArtilleryShooter shooter, Location launchLocation, ArtillerySettings settings,
+                                       Entity[] targets, Location[] targetSnapshots, Vector[] targetVelocities) {
+        if (isFiring(shooter.getUniqueId())) {
+            return false;
+        }
+
+        return snapshotStage(shooter, launchLocation, settings,
+                targets, targetSnapshots, targetVelocities, System.nanoTime());
+    }
+
+    /**
+     * true, пока залп стрелка готовится или еще не весь выпущен
+     */
+    public boolean isFiring(UUID shooter) {
+        return activeFires.containsKey(shooter) || inFlightBudget.getPending(shooter) > 0;
+    }
+
+    /**
+     * Отменяет готовящийся обстрел, например при выходе игрока с сервера
+     */
+    public void cancelFire(UUID shooter) {
+        FireRequest request = activeFires.remove(shooter);
+        if (request != null) {
+            request.cancel();
+            unreserve(request, request.projectileCount);
+        }
+    }
+
+    /**
+     * Сколько целей делят один залп с такими настройками
+     */
+    int getTargetLimit(ArtillerySettings settings) {
+        return Math.max(1, Math.min(Math.min(settings.getMaxTargets(), maxTargetsLimit),
+                settings.getProjectileCount()));
+    }
+
+    /**
+     * Укладывается ли перепад высот до цели в допустимое отношение height-ratio
+     */
+    boolean canReach(Location launchLocation, Location targetLocation) {
+        double horizontalDistance = Math.hypot(targetLocation.getX() - launchLocation.getX(),
+                targetLocation.getZ() - launchLocation.getZ());
+        return Math.abs(targetLocation.getY() - launchLocation.getY()) <= horizontalDistance * heightRatio;
+    }
+
+    /**
+     * Оценка горизонтальной скорости цели; сущности, не являющиеся игроками, с этого момента опрашиваются
+     */
+    Vector estimateTargetVelocity(Entity target) {
+        if (targetMotionTracker == null) {
+            return new Vector();
         }
 
-        player.sendMessage(ChatColor.GREEN + "Цель найдена: " +
-                target.getType().name() + " на расстоянии " +
-                String.format("%.1f", launchLocation.distance(targetLocation)) + " блоков");
+        targetMotionTracker.watch(target);
+        return targetMotionTracker.estimateVelocity(target);
+    }
 
-        String basicProjectileType = getBasicProjectileType(settings.getProjectileType());
+    /**
+     * Этап 1, основной поток: допуск залпа по лимиту по готовому снимку целей и передача планировщику
+     */
+    private boolean snapshotStage(ArtilleryShooter shooter, Location launchLocation, ArtillerySettings settings,
+                                  Entity[] targets, Location[] targetSnapshots, Vector[] targetVelocities,
+                                  long start) {
+        int projectileCount = admitVolley(shooter, launchLocation, settings.getProjectileCount());
+        if (projectileCount == 0) {
+            return false;
+        }
 
-        visualizeImpactArea(targetLocation, settings.getProjectileType(), settings.getRadius());
+        FireRequest request = new FireRequest(shooter, targets, launchLocation.clone(), targetSnapshots,
+                targetVelocities, settings, projectileCount, plugin.getConfig().getBoolean("debug-mode", false));
+        request.snapshotNanos = System.nanoTime() - start;
 
-        List<TargetPoint> targetPoints = generateTargetPoints(
-                launchLocation, targetLocation, basicProjectileType,
-                settings.getPattern(), settings.getProjectileCount(), settings.getRadius());
+        activeFires.put(shooter.getUniqueId(), request);
+        planner.execute(() -> planStage(request));
+        return true;
+    }
 
-        visualizeTargetPoints(targetPoints);
+    /**
+     * Этап 2, поток планировщика: упреждение, проверка перепада высот и точки залпа
+     */
+    private void planStage(FireRequest request) {
+        if (request.isCancelled()) {
+            return;
+        }
 
         try {
-            List<Double> velocities = pythonClient.getVelocities(targetPoints, basicProjectileType);
+            plan(request);
+        } catch (RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to plan artillery volley", e);
+            finish(request, () -> request.shooter.sendMessage(
+                    ChatColor.RED + "Ошибка при расчете залпа: " + e.getMessage()));
+        }
+    }
 
-            for (int i = 0; i < targetPoints.size(); i++) {
-                targetPoints.get(i).setVelocity(velocities.get(i));
+    private void plan(FireRequest request) {
+        long start = System.nanoTime();
+        Location launchLocation = request.launchLocation;
+        int targetCount = request.targets.length;
+
+        // Цели вне допустимого перепада высот пропускаются, их снаряды достаются остальным
+        int reachable = 0;
+        for (int i = 0; i < targetCount; i++) {
+            if (canReach(launchLocation, request.targetSnapshots[i])) {
+                request.targetLocations[i] = request.targetSnapshots[i];
+                reachable++;
             }
+        }
 
-            if (settings.getFireMode().equals("BURST")) {
-                fireBurstProjectiles(player, launchLocation, targetPoints, settings);
-            } else {
-                fireRainProjectiles(player, launchLocation, targetPoints, settings);
+        if (reachable == 0) {
+            Location nearest = request.targetSnapshots[0];
+            double maxAllowedHeightDifference = heightRatio * Math.hypot(
+                    nearest.getX() - launchLocation.getX(), nearest.getZ() - launchLocation.getZ());
+            double heightDifference = nearest.getY() - launchLocation.getY();
+            finish(request, () -> {
+                ArtilleryShooter shooter = request.shooter;
+                shooter.sendMessage(ChatColor.RED + "Невозможно запустить артиллерию: слишком большая разница высот!");
+                shooter.sendMessage(ChatColor.RED + "Максимально допустимая разница высот: " +
+                        String.format("%.1f", maxAllowedHeightDifference) + " блоков");
+                shooter.sendMessage(ChatColor.RED + "Текущая разница высот: " +
+                        String.format("%.1f", Math.abs(heightDifference)) + " блоков");
+            });
+            return;
+        }
+
+        // Снаряды делятся поровну, остаток достается ближайшим целям
+        int share = request.projectileCount / reachable;
+        int remainder = request.projectileCount % reachable;
+        boolean rain = !request.settings.getFireMode().equals("BURST");
+
+        VolleyPlan plan = new VolleyPlan(launchLocation.getWorld(), request.projectileCount);
+        int[] pointTargets = new int[request.projectileCount];
+
+        for (int i = 0, assigned = 0; i < targetCount; i++) {
+            if (request.targetLocations[i] == null) {
+                continue;
             }
 
+            int count = share + (assigned++ < remainder ? 1 : 0);
+            if (count == 0) {
+                request.targetLocations[i] = null;
+                continue;
+            }
+
+            // В режиме RAIN точки цели запускаются после точек предыдущих целей
+            double delayTicks = rain ? (plan.size() + (count - 1) / 2.0) * 5 : 0;
+            Location targetLocation = predictTargetLocation(request, i, delayTicks);
+            request.targetLocations[i] = targetLocation;
+
+            int first = plan.size();
+            generateVolleyPlan(plan, launchLocation, targetLocation, request.basicProjectileType,
+                    request.settings.getPattern(), count, request.settings.getRadius());
+            Arrays.fill(pointTargets, first, plan.size(), i);
+        }
+
+        request.plan = plan;
+        request.pointTargets = pointTargets;
+        request.planNanos = System.nanoTime() - start;
+
+        if (request.plan.countUnresolved() > 0) {
+            scheduler.runAsync(() -> predictStage(request));
+        } else {
+            scheduler.run(launchLocation, () -> commitStage(request));
+        }
+    }
+
+    /**
+     * Этап 3, асинхронная задача: скорости для точек, которые не решил оптимизатор
+     */
+    private void predictStage(FireRequest request) {
+        if (request.isCancelled()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        if (!pythonClient.isServerAvailable()) {
+            finish(request, () -> request.shooter.sendMessage(
+                    ChatColor.RED + "Python-сервер недоступен. Обстрел невозможен."));
+            return;
+        }
+
+        try {
+            pythonClient.resolveVelocities(request.plan, request.basicProjectileType);
         } catch (Exception e) {
-            player.sendMessage(ChatColor.RED + "Ошибка при получении скоростей: " + e.getMessage());
             plugin.getLogger().severe("Error getting velocities: " + e.getMessage());
             e.printStackTrace();
+            finish(request, () -> request.shooter.sendMessage(
+                    ChatColor.RED + "Ошибка при получении скоростей: " + e.getMessage()));
+            return;
         }
+
+        request.predictNanos = System.nanoTime() - start;
+        scheduler.run(request.launchLocation, () -> commitStage(request));
     }
 
-    private void fireRainProjectiles(Player player, Location launchLocation,
-                                     List<TargetPoint> targetPoints,
-                                     ArtillerySettings settings) {
-        player.sendMessage(ChatColor.GREEN + "Запуск артиллерийского обстрела (режим RAIN)!");
+    /**
+     * Этап 4, основной поток: проверка, что стрелок и цели на месте, и постановка залпа в очередь
+     */
+    private void commitStage(FireRequest request) {
+        if (request.isCancelled() || !activeFires.remove(request.shooter.getUniqueId(), request)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        ArtilleryShooter shooter = request.shooter;
 
-        for (int i = 0; i < targetPoints.size(); i++) {
-            final int index = i;
+        if (!shooter.isActive()) {
+            unreserve(request, request.projectileCount);
+            return;
+        }
 
-            plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-                TargetPoint point = targetPoints.get(index);
-                Entity projectile = launchProjectile(player, launchLocation, point, settings);
+        // Каждая цель должна остаться там, где ее ожидали увидеть по снимку скорости
+        double elapsedTicks = (System.nanoTime() - request.createdNanos) / 50_000_000.0;
+        boolean[] keepTargets = new boolean[request.targets.length];
+        int planned = 0;
+        int kept = 0;
+        boolean drifted = false;
 
-                if (projectile != null) {
-                    launchLocation.getWorld().spawnParticle(
-                            Particle.FLAME,
-                            launchLocation,
-                            5, 0.1, 0.1, 0.1, 0.01
-                    );
+        for (int i = 0; i < request.targets.length; i++) {
+            if (request.targetLocations[i] == null) {
+                continue;
+            }
+            planned++;
+
+            // Цель, ушедшую в регион другого потока, отсюда не прочитать: она считается потерянной
+            Entity target = request.targets[i];
+            Location snapshot = request.targetSnapshots[i];
+            if (!scheduler.isOwnedByCurrentRegion(target) || !target.isValid() ||
+                    !target.getWorld().equals(snapshot.getWorld())) {
+                continue;
+            }
+
+            Vector velocity = request.targetVelocities[i];
+            Location current = target.getLocation();
+            double driftX = current.getX() - (snapshot.getX() + velocity.getX() * elapsedTicks);
+            double driftZ = current.getZ() - (snapshot.getZ() + velocity.getZ() * elapsedTicks);
+            if (driftX * driftX + driftZ * driftZ > maxTargetDrift * maxTargetDrift) {
+                drifted = true;
+                continue;
+            }
+
+            keepTargets[i] = true;
+            kept++;
+        }
+
+        if (kept == 0) {
+            unreserve(request, request.projectileCount);
+            shooter.sendMessage(ChatColor.RED + (drifted
+                    ? "Цель сместилась, обстрел отменен"
+                    : "Цель потеряна, обстрел отменен"));
+            return;
+        }
+
+        VolleyPlan plan = request.plan;
+        int[] pointTargets = request.pointTargets;
+        if (kept < planned) {
+            boolean[] keepPoints = new boolean[plan.size()];
+            int keptPoints = 0;
+            for (int i = 0; i < keepPoints.length; i++) {
+                keepPoints[i] = keepTargets[pointTargets[i]];
+                if (keepPoints[i]) {
+                    pointTargets[keptPoints++] = pointTargets[i];
                 }
-            }, i * 5L);
+            }
+            plan.retain(keepPoints);
+            shooter.sendMessage(ChatColor.YELLOW + "Потеряно целей: " + (planned - kept) +
+                    ", их снаряды не будут выпущены");
+        }
+
+        // Очередь залпов снимает резерв только за выпущенные точки плана
+        unreserve(request, request.projectileCount - plan.size());
+
+        Location launchLocation = request.launchLocation;
+        ArtillerySettings settings = request.settings;
+
+        for (int i = 0; i < request.targets.length; i++) {
+            if (!keepTargets[i]) {
+                continue;
+            }
+
+            Location targetLocation = request.targetLocations[i];
+            shooter.sendMessage(ChatColor.GREEN + "Цель найдена: " +
+                    request.targets[i].getType().name() + " на расстоянии " +
+                    String.format("%.1f", launchLocation.distance(targetLocation)) + " блоков");
+
+            // Область цели может принадлежать другому региону: частицы рисует его поток
+            int target = i;
+            runAt(targetLocation, () -> {
+                ArtilleryRegion region = regionAt(targetLocation);
+                visualizeImpactArea(region, targetLocation, settings.getProjectileType(), settings.getRadius());
+                visualizeVolleyPlan(region, plan, pointTargets, target);
+            });
         }
 
-        plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-            player.sendMessage(ChatColor.GREEN + "Обстрел завершен! Запущено " +
-                    targetPoints.size() + " снарядов.");
-        }, targetPoints.size() * 5L + 10L);
+        ArtilleryRegion region = regionAt(launchLocation);
+        if (settings.getFireMode().equals("BURST")) {
+            fireBurstProjectiles(region, shooter, launchLocation, plan, settings);
+        } else {
+            fireRainProjectiles(region, shooter, launchLocation, plan, settings);
+        }
+
+        if (request.debug) {
+            plugin.getLogger().info(String.format(
+                    "Fire pipeline for %s (%d targets, %d points): snapshot %.2f ms, plan %.2f ms, " +
+                            "predict %.2f ms, commit %.2f ms, total %.1f ms",
+                    shooter.getName(), kept, plan.size(), request.snapshotNanos / 1e6, request.planNanos / 1e6,
+                    request.predictNanos / 1e6, (System.nanoTime() - start) / 1e6,
+                    (System.nanoTime() - request.createdNanos) / 1e6));
+        }
     }
 
-    private void fireBurstProjectiles(Player player, Location launchLocation,
-                                      List<TargetPoint> targetPoints,
-                                      ArtillerySettings settings) {
-        player.sendMessage(ChatColor.GREEN + "Запуск артиллерийского обстрела (режим BURST)!");
+    /**
+     * Завершает запрос с ошибкой: сообщение игроку отправляется из основного потока
+     */
+    private void finish(FireRequest request, Runnable message) {
+        scheduler.run(request.launchLocation, () -> {
+            if (!activeFires.remove(request.shooter.getUniqueId(), request)) {
+                return;
+            }
+
+            unreserve(request, request.projectileCount);
+            if (!request.isCancelled() && request.shooter.isActive()) {
+                message.run();
+            }
+        });
+    }
 
-        for (TargetPoint point : targetPoints) {
-            Entity projectile = launchProjectile(player, launchLocation, point, settings);
+    /**
+     * Снимает резерв, сделанный при допуске залпа. Вызывается тем, кто убрал запрос из activeFires,
+     * поэтому резерв снимается ровно один раз
+     */
+    private void unreserve(FireRequest request, int projectiles) {
+        if (projectiles > 0) {
+            inFlightBudget.unreserve(request.shooter.getUniqueId(),
+                    request.launchLocation.getWorld().getUID(), projectiles);
         }
+    }
 
-        launchLocation.getWorld().spawnParticle(
-                Particle.EXPLOSION_LARGE,
-                launchLocation,
-                1, 0, 0, 0, 0
-        );
+    /**
+     * Проверяет залп по лимиту снарядов в полете и резервирует место под допущенные снаряды
+     *
+     * @return сколько снарядов можно выпустить; 0, если залп отклонен
+     */
+    private int admitVolley(ArtilleryShooter shooter, Location launchLocation, int requested) {
+        UUID shooterId = shooter.getUniqueId();
+        UUID worldId = launchLocation.getWorld().getUID();
 
-        launchLocation.getWorld().spawnParticle(
-                Particle.FLAME,
-                launchLocation,
-                30, 0.5, 0.5, 0.5, 0.1
-        );
+        int available = inFlightBudget.admit(shooterId, worldId, requested);
+        int admitted = inFlightBudget.admitted(available, requested);
 
-        player.sendMessage(ChatColor.GREEN + "Залп выпущен! Запущено " +
-                targetPoints.size() + " снарядов.");
+        if (available >= requested) {
+            return requested;
+        }
+
+        if (inFlightBudget.getPolicy() == InFlightBudget.Policy.QUEUE) {
+            inFlightBudget.recordQueued();
+            shooter.sendMessage(ChatColor.YELLOW + "Достигнут лимит снарядов в полете: " +
+                    "залп будет выпущен по мере освобождения места");
+            return requested;
+        }
+
+        if (admitted > 0) {
+            inFlightBudget.recordShrunk(requested - admitted);
+            shooter.sendMessage(ChatColor.YELLOW + "Достигнут лимит снарядов в полете: " +
+                    "залп сокращен до " + admitted + " снарядов");
+            return admitted;
+        }
+
+        inFlightBudget.recordRejected();
+        shooter.sendMessage(ChatColor.RED + "Залп отклонен: достигнут лимит снарядов в полете");
+        return 0;
     }
 
-    private Entity launchProjectile(Player player, Location launchLocation,
-                                    TargetPoint point, ArtillerySettings settings) {
-        Vector horizontalDirection = new Vector(
-                point.getLocation().getX() - launchLocation.getX(),
+    private void fireRainProjectiles(ArtilleryRegion region, ArtilleryShooter shooter, Location launchLocation,
+                                     VolleyPlan plan,
+                                     ArtillerySettings settings) {
+        shooter.sendMessage(ChatColor.GREEN + "Запуск артиллерийского обстрела (режим RAIN)!");
+
+        region.getVolleyScheduler().submit(new VolleyScheduler.Volley(shooter, plan, 5, point -> {
+            Entity projectile = launchProjectile(shooter, launchLocation, plan, point, settings);
+
+            if (projectile != null) {
+                region.getParticleService().spawn(
+                        Particle.FLAME,
+                        launchLocation,
+                        5, 0.1, 0.1, 0.1, 0.01
+                );
+            }
+        }, () -> shooter.sendMessage(ChatColor.GREEN + "Обстрел завершен! Запущено " +
+                plan.size() + " снарядов.")));
+    }
+
+    private void fireBurstProjectiles(ArtilleryRegion region, ArtilleryShooter shooter, Location launchLocation,
+                                      VolleyPlan plan,
+                                      ArtillerySettings settings) {
+        shooter.sendMessage(ChatColor.GREEN + "Запуск артиллерийского обстрела (режим BURST)!");
+
+        ParticleService particleService = region.getParticleService();
+        region.getVolleyScheduler().submit(new VolleyScheduler.Volley(shooter, plan, 0,
+                point -> launchProjectile(shooter, launchLocation, plan, point, settings), () -> {
+            particleService.spawn(
+                    Particle.EXPLOSION_LARGE,
+                    launchLocation,
+                    1, 0, 0, 0, 0
+            );
+
+            particleService.spawn(
+                    Particle.FLAME,
+                    launchLocation,
+                    30, 0.5, 0.5, 0.5, 0.1
+            );
+
+            shooter.sendMessage(ChatColor.GREEN + "Залп выпущен! Запущено " +
+                    plan.size() + " снарядов.");
+        }));
+    }
+
+    private Entity launchProjectile(ArtilleryShooter shooter, Location launchLocation,
+                                    VolleyPlan plan, int point, ArtillerySettings settings) {
+        Vector direction = new Vector(
+                plan.getX(point) - launchLocation.getX(),
                 0,
-                point.getLocation().getZ() - launchLocation.getZ()
+                plan.getZ(point) - launchLocation.getZ()
         ).normalize();
 
-        Vector direction = horizontalDirection.clone();
-        direction.setY(Math.tan(point.getAngleRadians()));
+        direction.setY(Math.tan(plan.getAngleRadians(point)));
         direction.normalize();
 
+        double velocity = plan.getVelocity(point);
+
         Entity projectile = null;
 
         switch (settings.getProjectileType().toUpperCase()) {
             case "ARROW":
-                Arrow arrow = player.getWorld().spawnArrow(
-                        launchLocation, direction, (float) point.getVelocity(), 0);
+                Arrow arrow = launchLocation.getWorld().spawnArrow(
+                        launchLocation, direction, (float) velocity, 0);
                 arrow.setPersistent(false);
                 projectile = arrow;
                 break;
 
             case "FLAMING_ARROW":
-                Arrow flamingArrow = player.getWorld().spawnArrow(
-                        launchLocation, direction, (float) point.getVelocity(), 0);
+                Arrow flamingArrow = launchLocation.getWorld().spawnArrow(
+                        launchLocation, direction, (float) velocity, 0);
                 flamingArrow.setPersistent(false);
                 flamingArrow.setFireTicks(Integer.MAX_VALUE);
                 projectile = flamingArrow;
                 break;
 
             case "TRIDENT":
-                Trident trident = player.getWorld().spawn(launchLocation, Trident.class);
-                trident.setVelocity(direction.clone().multiply(point.getVelocity()));
+                Trident trident = launchLocation.getWorld().spawn(launchLocation, Trident.class);
+                trident.setVelocity(direction.multiply(velocity));
                 projectile = trident;
                 break;
 
             case "SPLASH_POTION":
-                ItemStack splashPotionItem = new ItemStack(Material.SPLASH_POTION);
-                PotionMeta splashPotionMeta = (PotionMeta) splashPotionItem.getItemMeta();
-
-                if (settings.getPotionEffect() != null) {
-                    PotionEffectType effectType = PotionEffectType.getByName(settings.getPotionEffect());
-                    if (effectType != null) {
-                        splashPotionMeta.addCustomEffect(new PotionEffect(
-                                effectType, settings.getPotionDuration(), settings.getPotionAmplifier()), true);
-                        splashPotionMeta.setColor(getPotionColor(effectType));
-                        splashPotionItem.setItemMeta(splashPotionMeta);
-                    }
-                }
-
-                ThrownPotion splashPotion = player.getWorld().spawn(launchLocation, ThrownPotion.class);
-                splashPotion.setItem(splashPotionItem);
-                splashPotion.setVelocity(direction.clone().multiply(point.getVelocity()));
+                ThrownPotion splashPotion = launchLocation.getWorld().spawn(launchLocation, ThrownPotion.class);
+                splashPotion.setItem(potionTemplates.get(Material.SPLASH_POTION, settings.getPotionEffect(),
+                        settings.getPotionDuration(), settings.getPotionAmplifier()));
+                splashPotion.setVelocity(direction.multiply(velocity));
                 projectile = splashPotion;
                 break;
 
             case "LINGERING_POTION":
-                ItemStack lingeringPotionItem = new ItemStack(Material.LINGERING_POTION);
-                PotionMeta lingeringPotionMeta = (PotionMeta) lingeringPotionItem.getItemMeta();
-
-                if (settings.getPotionEffect() != null) {
-                    PotionEffectType effectType = PotionEffectType.getByName(settings.getPotionEffect());
-                    if (effectType != null) {
-                        lingeringPotionMeta.addCustomEffect(new PotionEffect(
-                                effectType, settings.getPotionDuration(), settings.getPotionAmplifier()), true);
-                        lingeringPotionMeta.setColor(getPotionColor(effectType));
-                        lingeringPotionItem.setItemMeta(lingeringPotionMeta);
-                    }
-                }
-
-                ThrownPotion lingeringPotion = player.getWorld().spawn(launchLocation, LingeringPotion.class);
-                lingeringPotion.setItem(lingeringPotionItem);
-                lingeringPotion.setVelocity(direction.clone().multiply(point.getVelocity()));
+                ThrownPotion lingeringPotion = launchLocation.getWorld().spawn(launchLocation, LingeringPotion.class);
+                lingeringPotion.setItem(potionTemplates.get(Material.LINGERING_POTION, settings.getPotionEffect(),
+                        settings.getPotionDuration(), settings.getPotionAmplifier()));
+                lingeringPotion.setVelocity(direction.multiply(velocity));
                 projectile = lingeringPotion;
                 break;
 
             case "TNT":
-                TNTPrimed tnt = player.getWorld().spawn(launchLocation, TNTPrimed.class);
-                tnt.setVelocity(direction.clone().multiply(point.getVelocity()));
+                TNTPrimed tnt = launchLocation.getWorld().spawn(launchLocation, TNTPrimed.class);
+                tnt.setVelocity(direction.multiply(velocity));
                 tnt.setFuseTicks(1000);
 
-                tnt.setMetadata("artillery_tnt", new org.bukkit.metadata.FixedMetadataValue(plugin, true));
-
                 projectile = tnt;
                 break;
         }
 
         if (projectile != null) {
-            startProjectileVisualization(projectile, settings.getProjectileType());
-            trackProjectile(projectile, settings.getProjectileType());
+            projectileTracker.track(projectile, settings.getProjectileType(), shooter.getUniqueId());
         }
 
         return projectile;
     }
 
-    private void startProjectileVisualization(Entity projectile, String projectileType) {
-        BukkitTask task = new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (!projectile.isValid() || projectile.isDead()) {
-                    this.cancel();
-                    visualizationTasks.remove(projectile);
-                    return;
-                }
+    /**
+     * @return true, если снаряд выпущен артиллерией и приземлился впервые
+     */
+    public boolean handleProjectileLanding(Entity projectile) {
+        return projectileTracker.land(projectile);
+    }
 
-                if (projectileType.equalsIgnoreCase("TNT") && Math.random() > 0.7) {
-                    Location loc = projectile.getLocation();
-                    projectile.getWorld().spawnParticle(Particle.SMOKE_NORMAL, loc, 1, 0.05, 0.05, 0.05, 0.01);
-                }
-            }
-        }.runTaskTimer(plugin, 0L, 4L);
-        visualizationTasks.put(projectile, task);
+    /**
+     * Проверка по реестру летящих снарядов, без метаданных Bukkit
+     */
+    public boolean isArtilleryProjectile(Entity entity) {
+        return projectileTracker.contains(entity);
     }
 
-    private void trackProjectile(Entity projectile, String projectileType) {
-        BukkitTask task = new BukkitRunnable() {
-            private int groundTicks = 0;
-            private boolean isGrounded = false;
-            private Vector lastVelocity = projectile.getVelocity().clone();
-            private int unchangedVelocityTicks = 0;
+    public void releaseProjectile(Entity projectile) {
+        projectileTracker.untrack(projectile);
+    }
 
-            @Override
-            public void run() {
-                if (!projectile.isValid() || projectile.isDead()) {
-                    this.cancel();
-                    firedProjectiles.remove(projectile);
+    public int getTrackedProjectileCount() {
+        return projectileTracker.size();
+    }
 
-                    if (visualizationTasks.containsKey(projectile)) {
-                        visualizationTasks.get(projectile).cancel();
-                        visualizationTasks.remove(projectile);
-                    }
+    public int getPendingProjectileCount() {
+        return inFlightBudget.getPending();
+    }
 
-                    return;
-                }
+    public InFlightBudget getInFlightBudget() {
+        return inFlightBudget;
+    }
 
-                Vector currentVelocity = projectile.getVelocity();
+    /**
+     * Частицы региона, которому принадлежит точка; вызывать из потока этого региона
+     */
+    public ParticleService getParticleService(Location location) {
+        return regionAt(location).getParticleService();
+    }
 
-                if (lastVelocity.distance(currentVelocity) < 0.001) {
-                    unchangedVelocityTicks++;
-                } else {
-                    unchangedVelocityTicks = 0;
-                }
+    /**
+     * Сумма по всем регионам; на Folia значение приблизительное
+     */
+    public long getDroppedParticles() {
+        if (mainRegion != null) {
+            return mainRegion.getParticleService().getDropped();
+        }
 
-                boolean velocityNearZero = currentVelocity.lengthSquared() < 0.01;
-                boolean velocityUnchanged = unchangedVelocityTicks > 5;
+        long dropped = 0;
+        for (Map<Long, ArtilleryRegion> worldRegions : regions.values()) {
+            for (ArtilleryRegion region : worldRegions.values()) {
+                dropped += region.getParticleService().getDropped();
+            }
+        }
+        return dropped;
+    }
 
-                boolean isInBlock = false;
-                if (projectile instanceof Arrow) {
-                    Arrow arrow = (Arrow) projectile;
-                    isInBlock = arrow.isInBlock();
-                }
+    public ArtilleryScheduler getScheduler() {
+        return scheduler;
+    }
 
-                if (!isGrounded && (velocityNearZero || velocityUnchanged || isInBlock)) {
-                    isGrounded = true;
-                    onProjectileGrounded(projectile, projectileType);
+    /**
+     * @return null, если асинхронные взрывы выключены
+     */
+    public AsyncExplosionService getAsyncExplosions() {
+        return asyncExplosions;
+    }
 
-                    if (plugin.getConfig().getBoolean("debug-mode", false)) {
-                        plugin.getLogger().info("Projectile grounded: " + projectileType +
-                                " (velocityNearZero=" + velocityNearZero +
-                                ", velocityUnchanged=" + velocityUnchanged +
-                                ", isInBlock=" + isInBlock + ")");
-                    }
-                }
+    /**
+     * Колесо таймеров основного потока; null на Folia, где у каждого региона свое колесо
+     */
+    public TimingWheel getTimingWheel() {
+        return mainRegion != null ? mainRegion.getTimingWheel() : null;
+    }
 
-                if (isGrounded && (projectileType.equals("ARROW") ||
-                        projectileType.equals("FLAMING_ARROW") ||
-                        projectileType.equals("TRIDENT"))) {
-                    groundTicks++;
+    /**
+     * Вызывается при входе игрока: на Folia цели опрашиваются каждая в своем регионе
+     */
+    public void onPlayerJoin(Player player) {
+        if (targetMotionTracker != null) {
+            targetMotionTracker.addPlayer(player);
+        }
+    }
 
-                    if (groundTicks >= 60) {
-                        projectile.remove();
-                        this.cancel();
-                        firedProjectiles.remove(projectile);
+    /**
+     * Регион артиллерии для точки. На Folia регион создается при первом обращении
+     * и привязывает свои таймеры к этой точке; вызывать можно только из потока, владеющего точкой
+     */
+    ArtilleryRegion regionAt(Location location) {
+        if (mainRegion != null) {
+            return mainRegion;
+        }
 
-                        if (visualizationTasks.containsKey(projectile)) {
-                            visualizationTasks.get(projectile).cancel();
-                            visualizationTasks.remove(projectile);
-                        }
+        int shift = 4 + regionShift;
+        long key = (long) (location.getBlockX() >> shift) << 32 | ((location.getBlockZ() >> shift) & 0xFFFFFFFFL);
+        Map<Long, ArtilleryRegion> worldRegions = regions.computeIfAbsent(location.getWorld().getUID(),
+                id -> new ConcurrentHashMap<>());
 
-                        if (plugin.getConfig().getBoolean("debug-mode", false)) {
-                            plugin.getLogger().info("Removed grounded projectile: " + projectileType);
-                        }
-                    }
-                }
+        ArtilleryRegion region = worldRegions.get(key);
+        if (region == null) {
+            region = new ArtilleryRegion(plugin, scheduler, inFlightBudget, null, location.clone(),
+                    released -> worldRegions.remove(key, released));
+            worldRegions.put(key, region);
+        }
+        return region;
+    }
 
-                lastVelocity = currentVelocity.clone();
-            }
-        }.runTaskTimer(plugin, 5L, 1L);
+    /**
+     * Выполняет задачу сразу, если точка принадлежит текущему потоку, иначе передает ее в регион точки
+     */
+    private void runAt(Location location, Runnable task) {
+        if (scheduler.isOwnedByCurrentRegion(location)) {
+            task.run();
+        } else {
+            scheduler.run(location, task);
+        }
+    }
 
-        firedProjectiles.put(projectile, task);
+    public BarragePatterns getBarragePatterns() {
+        return barragePatterns;
+    }
+
+    public void shutdown() {
+        planner.shutdownNow();
+        for (UUID shooter : new ArrayList<>(activeFires.keySet())) {
+            cancelFire(shooter);
+        }
+        if (asyncExplosions != null) {
+            asyncExplosions.clear();
+        }
+        if (mainRegion != null) {
+            mainRegion.clear();
+        }
+        for (Map<Long, ArtilleryRegion> worldRegions : regions.values()) {
+            for (ArtilleryRegion region : worldRegions.values()) {
+                region.clear();
+            }
+        }
+        regions.clear();
+        projectileTracker.clear();
     }
 
     private void onProjectileGrounded(Entity projectile, String projectileType) {
         Location location = projectile.getLocation();
+        ArtilleryRegion region = regionAt(location);
+        ParticleService particleService = region.getParticleService();
+        ExplosionCoordinator explosionCoordinator = region.getExplosionCoordinator();
 
         switch (projectileType.toUpperCase()) {
             case "TNT":
                 if (projectile instanceof TNTPrimed) {
                     TNTPrimed tnt = (TNTPrimed) projectile;
 
-                    tnt.setFuseTicks(0);
-
-                    location.getWorld().spawnParticle(
+                    particleService.spawn(
                             Particle.EXPLOSION_LARGE,
                             location,
                             5, 0.5, 0.5, 0.5, 0
                     );
+
+                    if (explosionCoordinator != null) {
+                        // Координатор сам убирает TNT, и TntExplosionListener его уже не увидит,
+                        // поэтому место в лимите снарядов освобождается здесь
+                        releaseProjectile(tnt);
+                        explosionCoordinator.detonate(tnt);
+                    } else {
+                        tnt.setFuseTicks(0);
+                    }
                 }
                 break;
 
             case "ARROW":
-                location.getWorld().spawnParticle(
+                particleService.spawn(
                         Particle.CRIT,
                         location,
                         10, 0.2, 0.2, 0.2, 0.1
@@ -573,12 +1069,12 @@ public class ArtilleryManager {
                 break;
 
             case "FLAMING_ARROW":
-                location.getWorld().spawnParticle(
+                particleService.spawn(
                         Particle.FLAME,
                         location,
                         10, 0.2, 0.2, 0.2, 0.05
                 );
-                location.getWorld().spawnParticle(
+                particleService.spawn(
                         Particle.LAVA,
                         location,
                         3, 0.1, 0.1, 0.1, 0
@@ -586,7 +1082,7 @@ public class ArtilleryManager {
                 break;
 
             case "TRIDENT":
-                location.getWorld().spawnParticle(
+                particleService.spawn(
                         Particle.ENCHANTMENT_TABLE,
                         location,
                         20, 0.5, 0.5, 0.5, 1
@@ -596,83 +1092,131 @@ public class ArtilleryManager {
         }
     }
 
-    private Entity findTarget(Player player, Location location, boolean isDebug, int maxRange) {
-        Entity target = null;
-        double minDistance = maxRange;
-
-        for (Entity entity : location.getWorld().getEntities()) {
-            if (location.distance(entity.getLocation()) > maxRange) {
+    /**
+     * До maxTargets ближайших целей в радиусе maxRange, от ближней к дальней. Игроки берутся
+     * из списка игроков мира, железные големы (режим отладки) - из чанков в пределах радиуса,
+     * так что стоимость поиска не зависит от общего числа сущностей в мире
+     */
+    private Entity[] findTargets(Player player, Location location, boolean isDebug, int maxRange, int maxTargets) {
+        Collection<? extends Entity> candidates = isDebug
+                ? location.getWorld().getNearbyEntities(location, maxRange, maxRange, maxRange,
+                        entity -> entity.getType() == EntityType.IRON_GOLEM)
+                : scheduler.getPlayers(location.getWorld());
+
+        // Ближайшие цели держатся отсортированными вставкой: maxTargets невелико
+        Entity[] targets = new Entity[maxTargets];
+        double[] distances = new double[maxTargets];
+        int found = 0;
+        double maxDistanceSquared = (double) maxRange * maxRange;
+        Location entityLocation = new Location(location.getWorld(), 0, 0, 0);
+
+        for (Entity entity : candidates) {
+            if (entity.equals(player)) {
                 continue;
             }
 
-            if (isDebug) {
-                if (entity.getType() == EntityType.IRON_GOLEM) {
-                    double distance = location.distance(entity.getLocation());
-                    if (distance < minDistance) {
-                        minDistance = distance;
-                        target = entity;
-                    }
-                }
+            double distanceSquared = location.distanceSquared(entity.getLocation(entityLocation));
+            if (distanceSquared >= maxDistanceSquared ||
+                    (found == maxTargets && distanceSquared >= distances[found - 1])) {
+                continue;
             }
-            else {
-                if (entity instanceof Player && !entity.equals(player)) {
-                    double distance = location.distance(entity.getLocation());
-                    if (distance < minDistance) {
-                        minDistance = distance;
-                        target = entity;
-                    }
-                }
+
+            int i = found < maxTargets ? found++ : found - 1;
+            while (i > 0 && distances[i - 1] > distanceSquared) {
+                targets[i] = targets[i - 1];
+                distances[i] = distances[i - 1];
+                i--;
             }
+            targets[i] = entity;
+            distances[i] = distanceSquared;
         }
 
-        return target;
+        return found == maxTargets ? targets : Arrays.copyOf(targets, found);
     }
 
-    private List<TargetPoint> generateTargetPoints(Location launchLocation, Location targetLocation,
-                                                   String projectileType, String pattern,
-                                                   int projectileCount, double radius) {
-        List<TargetPoint> points = new ArrayList<>();
+    /**
+     * Положение цели к моменту падения снаряда. Без истории движения или оценки
+     * времени полета возвращается положение из снимка
+     *
+     * @param delayTicks через сколько тиков в среднем будут запущены снаряды по этой цели
+     */
+    private Location predictTargetLocation(FireRequest request, int target, double delayTicks) {
+        Location launchLocation = request.launchLocation;
+        Location targetLocation = request.targetSnapshots[target];
+        Vector velocity = request.targetVelocities[target];
+        if (interceptSolver == null || velocity.lengthSquared() == 0) {
+            return targetLocation;
+        }
 
-        Vector direction = targetLocation.toVector().subtract(launchLocation.toVector());
-        double horizontalDistance = Math.sqrt(
-                Math.pow(direction.getX(), 2) + Math.pow(direction.getZ(), 2));
-        double heightDifference = direction.getY();
+        String projectileType = request.basicProjectileType;
+
+        InterceptSolver.Intercept intercept = interceptSolver.solve(
+                launchLocation.getX(), launchLocation.getY(), launchLocation.getZ(),
+                targetLocation.getX(), targetLocation.getY(), targetLocation.getZ(),
+                velocity.getX(), velocity.getZ(), delayTicks,
+                (horizontalDistance, heightDifference) -> {
+                    double maxHeight = horizontalDistance * heightRatio;
+                    LaunchOptimizer.Solution solution = optimizeLaunch(horizontalDistance,
+                            Math.max(-maxHeight, Math.min(maxHeight, heightDifference)), projectileType);
+                    return solution != null ? solution.getFlightTicks() : Double.NaN;
+                });
+
+        if (intercept == null) {
+            return targetLocation;
+        }
 
-        double heightRatio = Math.abs(heightDifference) / horizontalDistance;
-        if (heightRatio > 0.2) {
-            heightDifference = Math.signum(heightDifference) * horizontalDistance * 0.2;
+        if (request.debug) {
+            plugin.getLogger().info(String.format(
+                    "Intercept: lead %.1f blocks, flight %.1f ticks, %d iterations%s",
+                    Math.hypot(intercept.getX() - targetLocation.getX(), intercept.getZ() - targetLocation.getZ()),
+                    intercept.getFlightTicks(), intercept.getIterations(),
+                    intercept.isConverged() ? "" : " (not converged)"));
         }
 
-        double angleRadians = calculateLaunchAngle(horizontalDistance, heightDifference, projectileType);
+        return new Location(targetLocation.getWorld(), intercept.getX(), intercept.getY(), intercept.getZ());
+    }
 
-        points.add(new TargetPoint(
-                targetLocation.clone(),
-                horizontalDistance,
-                heightDifference,
-                angleRadians
-        ));
+    /**
+     * Добавляет в план projectileCount точек вокруг одной цели по шаблону залпа
+     */
+    private void generateVolleyPlan(VolleyPlan plan, Location launchLocation, Location targetLocation,
+                                    String projectileType, String pattern,
+                                    int projectileCount, double radius) {
+        addPlannedPoint(plan, launchLocation, targetLocation.getX(), targetLocation.getY(), targetLocation.getZ(),
+                projectileType);
 
         if (projectileCount <= 1) {
-            return points;
+            return;
         }
 
-        switch (pattern.toUpperCase()) {
-            case "UNIFORM":
-                generateUniformCirclePoints(points, launchLocation, targetLocation,
-                        radius, projectileCount - 1, projectileType);
-                break;
-            case "CONCENTRATED":
-                generateConcentratedCirclePoints(points, launchLocation, targetLocation,
-                        radius, projectileCount - 1, projectileType);
-                break;
-            case "RANDOM":
-            default:
-                generateRandomCirclePoints(points, launchLocation, targetLocation,
-                        radius, projectileCount - 1, projectileType);
-                break;
+        int count = projectileCount - 1;
+        if (patternOffsets.length < count * BarragePattern.STRIDE) {
+            patternOffsets = new double[count * BarragePattern.STRIDE];
         }
+        barragePatterns.get(pattern).generate(count, random, patternOffsets);
+
+        // Смещения шаблона заданы относительно направления огня
+        double forwardX = targetLocation.getX() - launchLocation.getX();
+        double forwardZ = targetLocation.getZ() - launchLocation.getZ();
+        double length = Math.sqrt(forwardX * forwardX + forwardZ * forwardZ);
+        if (length < 1e-6) {
+            forwardX = 1;
+            forwardZ = 0;
+        } else {
+            forwardX /= length;
+            forwardZ /= length;
+        }
+
+        for (int i = 0; i < count; i++) {
+            double u = patternOffsets[i * BarragePattern.STRIDE] * radius;
+            double v = patternOffsets[i * BarragePattern.STRIDE + 1] * radius;
 
-        return points;
+            addPlannedPoint(plan, launchLocation,
+                    targetLocation.getX() + u * forwardX - v * forwardZ,
+                    targetLocation.getY() + patternOffsets[i * BarragePattern.STRIDE + 2],
+                    targetLocation.getZ() + u * forwardZ + v * forwardX,
+                    projectileType);
+        }
     }
 
     private double calculateLaunchAngle(double horizontalDistance, double heightDifference, String projectileType) {
@@ -691,110 +1235,103 @@ public class ArtilleryManager {
         }
     }
 
-    private void generateUniformCirclePoints(List<TargetPoint> points, Location launchLocation,
-                                             Location centerLocation, double radius,
-                                             int pointCount, String projectileType) {
-        double angleStep = 2 * Math.PI / pointCount;
-
-        for (int i = 0; i < pointCount; i++) {
-            double angle = i * angleStep;
-
-            double x = centerLocation.getX() + radius * Math.cos(angle);
-            double z = centerLocation.getZ() + radius * Math.sin(angle);
+    private void addPlannedPoint(VolleyPlan plan, Location launchLocation,
+                                 double x, double y, double z, String projectileType) {
+        double dx = x - launchLocation.getX();
+        double dz = z - launchLocation.getZ();
 
-            Location pointLocation = new Location(
-                    centerLocation.getWorld(), x, centerLocation.getY(), z);
+        double horizontalDistance = Math.sqrt(dx * dx + dz * dz);
+        double heightDifference = y - launchLocation.getY();
 
-            calculateAndAddTargetPoint(points, launchLocation, pointLocation, projectileType);
+        double heightRatio = Math.abs(heightDifference) / horizontalDistance;
+        if (heightRatio > this.heightRatio) {
+            heightDifference = Math.signum(heightDifference) * horizontalDistance * this.heightRatio;
         }
-    }
-
-    private void generateConcentratedCirclePoints(List<TargetPoint> points, Location launchLocation,
-                                                  Location centerLocation, double radius,
-                                                  int pointCount, String projectileType) {
-        int rings = Math.min(5, pointCount / 5);
-        if (rings < 1) rings = 1;
-
-        int remainingPoints = pointCount;
 
-        for (int ring = 0; ring < rings; ring++) {
-            double ringWeight = (rings - ring) / (double)rings;
-            int ringPoints = (int)(remainingPoints * ringWeight);
-            if (ring == rings - 1) ringPoints = remainingPoints;
+        LaunchOptimizer.Solution solution = optimizeLaunch(horizontalDistance, heightDifference, projectileType);
+        if (solution != null) {
+            int point = plan.add(x, y, z, horizontalDistance, heightDifference, solution.getAngleRadians());
+            plan.setVelocity(point, solution.getVelocity());
+            return;
+        }
 
-            double ringRadius = radius * (0.2 + 0.8 * (ring + 1) / rings);
+        double angle = calculateLaunchAngle(horizontalDistance, heightDifference, projectileType);
+        plan.add(x, y, z, horizontalDistance, heightDifference, angle);
+    }
 
-            double angleStep = 2 * Math.PI / ringPoints;
-            for (int i = 0; i < ringPoints; i++) {
-                double angle = i * angleStep;
+    private LaunchOptimizer.Solution optimizeLaunch(double horizontalDistance, double heightDifference,
+                                                    String projectileType) {
+        if (launchOptimizer == null) {
+            return null;
+        }
 
-                double x = centerLocation.getX() + ringRadius * Math.cos(angle);
-                double z = centerLocation.getZ() + ringRadius * Math.sin(angle);
+        BallisticProfile profile = BallisticProfile.fromProjectileType(projectileType);
+        if (profile == null) {
+            return null;
+        }
 
-                Location pointLocation = new Location(
-                        centerLocation.getWorld(), x, centerLocation.getY(), z);
+        MotionModel model = profile;
+        double maxVelocity = maxLaunchVelocities.get(profile);
 
-                calculateAndAddTargetPoint(points, launchLocation, pointLocation, projectileType);
+        if (!profile.isSimulationAccurate()) {
+            TntMotionModel tntModel = tntMotionModel;
+            if (profile != BallisticProfile.TNT || tntModel == null) {
+                return null;
             }
-
-            remainingPoints -= ringPoints;
-            if (remainingPoints <= 0) break;
+            model = tntModel;
+            maxVelocity = Math.min(maxVelocity, tntModel.getMaxFittedVelocity());
         }
-    }
-
-    private void generateRandomCirclePoints(List<TargetPoint> points, Location launchLocation,
-                                            Location centerLocation, double radius,
-                                            int pointCount, String projectileType) {
-        for (int i = 0; i < pointCount; i++) {
-            double angle = random.nextDouble() * 2 * Math.PI;
-            double distance = radius * Math.sqrt(random.nextDouble());
-
-            double x = centerLocation.getX() + distance * Math.cos(angle);
-            double z = centerLocation.getZ() + distance * Math.sin(angle);
-
-            double y = centerLocation.getY() + (random.nextDouble() - 0.5);
 
-            Location pointLocation = new Location(
-                    centerLocation.getWorld(), x, y, z);
-
-            calculateAndAddTargetPoint(points, launchLocation, pointLocation, projectileType);
+        TrajectoryAtlas atlas = trajectoryAtlases.get(profile);
+        if (atlas != null) {
+            return launchOptimizer.solve(atlas, horizontalDistance, heightDifference, maxVelocity);
         }
+
+        return launchOptimizer.solve(model, horizontalDistance, heightDifference, maxVelocity);
     }
 
-    private void calculateAndAddTargetPoint(List<TargetPoint> points, Location launchLocation,
-                                            Location targetLocation, String projectileType) {
-        Vector direction = targetLocation.toVector().subtract(launchLocation.toVector());
+    public double getMaxLaunchVelocity(BallisticProfile profile) {
+        return maxLaunchVelocities.get(profile);
+    }
 
-        double horizontalDistance = Math.sqrt(
-                Math.pow(direction.getX(), 2) + Math.pow(direction.getZ(), 2));
-        double heightDifference = direction.getY();
+    public void setTrajectoryAtlas(BallisticProfile profile, TrajectoryAtlas atlas) {
+        trajectoryAtlases.put(profile, atlas);
+    }
 
-        double heightRatio = Math.abs(heightDifference) / horizontalDistance;
-        if (heightRatio > this.heightRatio) {
-            heightDifference = Math.signum(heightDifference) * horizontalDistance * this.heightRatio;
+    /**
+     * Атлас TNT заменяется вместе с моделью, чтобы дуги всегда соответствовали коэффициентам
+     */
+    public void setTntMotionModel(TntMotionModel tntMotionModel, TrajectoryAtlas atlas) {
+        if (atlas != null) {
+            trajectoryAtlases.put(BallisticProfile.TNT, atlas);
+        } else {
+            trajectoryAtlases.remove(BallisticProfile.TNT);
         }
-
-        double angle = calculateLaunchAngle(horizontalDistance, heightDifference, projectileType);
-
-        points.add(new TargetPoint(
-                targetLocation.clone(),
-                horizontalDistance,
-                heightDifference,
-                angle
-        ));
+        this.tntMotionModel = tntMotionModel;
     }
 
-    private void visualizeTargetPoints(List<TargetPoint> points) {
-        for (TargetPoint point : points) {
-            point.getLocation().getWorld().spawnParticle(
-                    Particle.VILLAGER_HAPPY,
-                    point.getLocation(),
-                    5, 0.2, 0.2, 0.2, 0.01
+    /**
+     * Точки залпа, направленные в цель target
+     */
+    private void visualizeVolleyPlan(ArtilleryRegion region, VolleyPlan plan, int[] pointTargets, int target) {
+        ParticleService particleService = region.getParticleService();
+        for (int i = 0; i < plan.size(); i++) {
+            if (pointTargets[i] != target) {
+                continue;
+            }
+            particleService.spawn(
+                    plan.getWorld(), Particle.VILLAGER_HAPPY,
+                    plan.getX(i), plan.getY(i), plan.getZ(i),
+                    5, 0.2, 0.2, 0.2, 0.01, null
             );
         }
     }
 
-    private void visualizeImpactArea(Location targetLocation, String projectileType, double radius) {
+    private void visualizeImpactArea(ArtilleryRegion region, Location targetLocation, String projectileType,
+                                     double radius) {
+        ParticleService particleService = region.getParticleService();
+        TimingWheel timingWheel = region.getTimingWheel();
+
         Particle particleType;
         Object particleData = null;
 
@@ -824,17 +1361,18 @@ public class ArtilleryManager {
         final Particle finalParticleType = particleType;
         final Object finalParticleData = particleData;
 
-        new BukkitRunnable() {
+        new Runnable() {
             private int ticks = 0;
             private final int maxTicks = 200;
 
             @Override
             public void run() {
                 if (ticks >= maxTicks) {
-                    this.cancel();
                     return;
                 }
 
+                World world = targetLocation.getWorld();
+
                 for (int i = 0; i < 10; i++) {
                     double angle = Math.random() * 2 * Math.PI;
                     double distance = Math.random() * radius;
@@ -843,14 +1381,10 @@ public class ArtilleryManager {
                     double z = targetLocation.getZ() + distance * Math.sin(angle);
                     double y = targetLocation.getY() + Math.random() * 0.5;
 
-                    Location particleLocation = new Location(targetLocation.getWorld(), x, y, z);
-
                     if (finalParticleData != null && finalParticleType == Particle.REDSTONE) {
-                        targetLocation.getWorld().spawnParticle(
-                                finalParticleType, particleLocation, 1, 0, 0, 0, 0, finalParticleData);
+                        particleService.spawn(world, finalParticleType, x, y, z, 1, 0, 0, 0, 0, finalParticleData);
                     } else {
-                        targetLocation.getWorld().spawnParticle(
-                                finalParticleType, particleLocation, 1, 0.05, 0.05, 0.05, 0.01);
+                        particleService.spawn(world, finalParticleType, x, y, z, 1, 0.05, 0.05, 0.05, 0.01, null);
                     }
                 }
 
@@ -863,15 +1397,65 @@ public class ArtilleryManager {
                         double z = targetLocation.getZ() + distance * Math.sin(angle);
                         double y = targetLocation.getY() + Math.random() * 1.0;
 
-                        Location particleLocation = new Location(targetLocation.getWorld(), x, y, z);
-                        targetLocation.getWorld().spawnParticle(
-                                Particle.CRIT_MAGIC, particleLocation, 2, 0.1, 0.1, 0.1, 0.01);
+                        particleService.spawn(world, Particle.CRIT_MAGIC, x, y, z, 2, 0.1, 0.1, 0.1, 0.01, null);
                     }
                 }
 
                 ticks++;
+                timingWheel.schedule(2, this);
             }
-        }.runTaskTimer(plugin, 0L, 2L);
+        }.run();
+    }
+
+    /**
+     * Состояние одного обстрела между этапами. Поля снимка заполняются в основном потоке
+     * и дальше только читаются; результаты этапов передаются через постановку следующего этапа.
+     * Массивы целей параллельны: i-я цель, ее снимок, скорость и точка прицеливания
+     */
+    private final class FireRequest {
+        private final ArtilleryShooter shooter;
+        private final Entity[] targets;
+        private final Location launchLocation;
+        private final Location[] targetSnapshots;
+        private final Vector[] targetVelocities;
+        private final ArtillerySettings settings;
+        private final String basicProjectileType;
+        private final int projectileCount;
+        private final boolean debug;
+        private final long createdNanos = System.nanoTime();
+        private volatile boolean cancelled = false;
+
+        /**
+         * Точки прицеливания; null для целей, по которым не стреляем
+         */
+        private final Location[] targetLocations;
+        private VolleyPlan plan;
+        private int[] pointTargets;
+        private long snapshotNanos;
+        private long planNanos;
+        private long predictNanos;
+
+        FireRequest(ArtilleryShooter shooter, Entity[] targets, Location launchLocation, Location[] targetSnapshots,
+                    Vector[] targetVelocities, ArtillerySettings settings, int projectileCount, boolean debug) {
+            this.shooter = shooter;
+            this.targets = targets;
+            this.launchLocation = launchLocation;
+            this.targetSnapshots = targetSnapshots;
+            this.targetVelocities = targetVelocities;
+            this.targetLocations = new Location[targets.length];
+            this.settings = settings;
+            this.basicProjectileType = getBasicProjectileType(settings.getProjectileType());
+            this.projectileCount = projectileCount;
+            this.debug = debug;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
     }
 
     public static class ArtillerySettings {
@@ -882,12 +1466,13 @@ public class ArtilleryManager {
         private final int maxRange;
         private final int projectileCount;
         private final double radius;
+        private final int maxTargets;
         private final String potionEffect;
         private final int potionDuration;
         private final int potionAmplifier;
 
         public ArtillerySettings(boolean isDebug, String fireMode, String projectileType, String pattern,
-                                 int maxRange, int projectileCount, double radius,
+                                 int maxRange, int projectileCount, double radius, int maxTargets,
                                  String potionEffect, int potionDuration, int potionAmplifier) {
             this.isDebug = isDebug;
             this.fireMode = fireMode;
@@ -896,6 +1481,7 @@ public class ArtilleryManager {
             this.maxRange = maxRange;
             this.projectileCount = projectileCount;
             this.radius = radius;
+            this.maxTargets = maxTargets;
             this.potionEffect = potionEffect;
             this.potionDuration = potionDuration;
             this.potionAmplifier = potionAmplifier;
@@ -929,6 +1515,13 @@ public class ArtilleryManager {
             return radius;
         }
 
+        /**
+         * Сколько ближайших целей делят один залп; 1 - обычный обстрел одной цели
+         */
+        public int getMaxTargets() {
+            return maxTargets;
+        }
+
         public String getPotionEffect() {
             return potionEffect;
         }
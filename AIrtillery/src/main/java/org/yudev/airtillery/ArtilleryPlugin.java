@@ -2,17 +2,29 @@ package org.yudev.airtillery;
 
 
 import org.bukkit.plugin.java.JavaPlugin;
+import org.yudev.ballistics.BallisticProfile;
+import org.yudev.ballistics.TntMotionModel;
+import org.yudev.ballistics.TrajectoryAtlas;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 public class ArtilleryPlugin extends JavaPlugin {
+    private ArtilleryScheduler artilleryScheduler;
     private PythonClient pythonClient;
     private ArtilleryManager artilleryManager;
+    private EmplacementManager emplacementManager;
     private Process pythonProcess;
 
     @Override
     public void onEnable() {
         saveDefaultConfig();
 
+        artilleryScheduler = ArtilleryScheduler.create(this);
+        if (artilleryScheduler.isRegionized()) {
+            getLogger().info("Regionized server detected, artillery runs on region threads");
+        }
+
         String serverUrl = getConfig().getString("python-server-url", "http://localhost:5000");
         pythonClient = new PythonClient(this, serverUrl);
 
@@ -22,21 +34,93 @@ public class ArtilleryPlugin extends JavaPlugin {
 
         artilleryManager = new ArtilleryManager(this, pythonClient);
 
+        artilleryScheduler.runAsync(this::loadBallistics);
+
         getCommand("giveartillery").setExecutor(new ArtilleryCommandExecutor(this, artilleryManager));
 
         getServer().getPluginManager().registerEvents(new ArtilleryListener(this, artilleryManager), this);
         getServer().getPluginManager().registerEvents(new TntExplosionListener(this), this);
+        getServer().getPluginManager().registerEvents(new ProjectileLandingListener(artilleryManager), this);
+
+        if (getConfig().getBoolean("emplacements.enabled", true) && artilleryScheduler.isRegionized()) {
+            getLogger().warning("Emplacements are not supported on regionized servers yet, disabling them");
+        } else if (getConfig().getBoolean("emplacements.enabled", true)) {
+            emplacementManager = new EmplacementManager(this, artilleryManager, artilleryManager.getTimingWheel());
+            getServer().getPluginManager().registerEvents(
+                    new EmplacementListener(artilleryManager, emplacementManager), this);
+            emplacementManager.loadAll();
+        }
+
+        if (getConfig().getBoolean("debug-mode", false)) {
+            artilleryScheduler.runGlobalTimer(() -> {
+                InFlightBudget budget = artilleryManager.getInFlightBudget();
+                getLogger().info("In-flight projectiles: " + artilleryManager.getTrackedProjectileCount() +
+                        ", queued: " + artilleryManager.getPendingProjectileCount() +
+                        ", volleys queued/rejected: " + budget.getQueuedVolleys() + "/" + budget.getRejectedVolleys() +
+                        ", projectiles shrunk: " + budget.getShrunkProjectiles() +
+                        ", particle batches dropped: " + artilleryManager.getDroppedParticles() +
+                        ", emplacements loaded: " + (emplacementManager != null ? emplacementManager.size() : 0));
+            }, 1200L, 1200L);
+        }
 
         getLogger().info("Artillery Plugin enabled!");
     }
 
     @Override
     public void onDisable() {
-        getServer().getScheduler().cancelTasks(this);
+        if (artilleryScheduler != null) {
+            artilleryScheduler.cancelTasks();
+        }
+        if (emplacementManager != null) {
+            emplacementManager.shutdown();
+        }
+        if (artilleryManager != null) {
+            artilleryManager.shutdown();
+        }
         stopPythonServer();
         getLogger().info("Artillery Plugin disabled!");
     }
 
+    /**
+     * Фоновая загрузка модели TNT и атласов траекторий
+     */
+    private void loadBallistics() {
+        TrajectoryAtlasLoader atlasLoader = getConfig().getBoolean("trajectory-atlas.enabled", true)
+                ? new TrajectoryAtlasLoader(this) : null;
+
+        if (atlasLoader != null) {
+            // Ключ - только физика и предел скорости, так что ARROW и TRIDENT получают один атлас
+            Map<Long, TrajectoryAtlas> builtAtlases = new HashMap<>();
+
+            for (BallisticProfile profile : BallisticProfile.values()) {
+                if (!profile.isSimulationAccurate()) {
+                    continue;
+                }
+
+                double maxVelocity = artilleryManager.getMaxLaunchVelocity(profile);
+                long key = profile.signature() * 31 + Double.doubleToLongBits(maxVelocity);
+                TrajectoryAtlas atlas = builtAtlases.get(key);
+                if (atlas == null) {
+                    atlas = atlasLoader.load(profile.name(), profile, maxVelocity);
+                    builtAtlases.put(key, atlas);
+                }
+                artilleryManager.setTrajectoryAtlas(profile, atlas);
+            }
+        }
+
+        if (getConfig().getBoolean("tnt-model.enabled", true)) {
+            TntMotionModel model = new TntModelLoader(this).load();
+            if (model != null) {
+                TrajectoryAtlas atlas = null;
+                if (atlasLoader != null) {
+                    atlas = atlasLoader.load(BallisticProfile.TNT.name(), model, Math.min(
+                            artilleryManager.getMaxLaunchVelocity(BallisticProfile.TNT), model.getMaxFittedVelocity()));
+                }
+                artilleryManager.setTntMotionModel(model, atlas);
+            }
+        }
+    }
+
     private void startPythonServer() {
         try {
             String pythonPath = getConfig().getString("python-path", "python");
@@ -62,6 +146,10 @@ public class ArtilleryPlugin extends JavaPlugin {
         }
     }
 
+    public ArtilleryScheduler getArtilleryScheduler() {
+        return artilleryScheduler;
+    }
+
     public PythonClient getPythonClient() {
         return pythonClient;
     }
@@ -69,4 +157,11 @@ public class ArtilleryPlugin extends JavaPlugin {
     public ArtilleryManager getArtilleryManager() {
         return artilleryManager;
     }
+
+    /**
+     * @return null, если установки выключены в конфиге
+     */
+    public EmplacementManager getEmplacementManager() {
+        return emplacementManager;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package org.yudev.airtillery;
+
+import org.bukkit.Location;
+
+import java.util.function.Consumer;
+
+/**
+ * Состояние артиллерии, которое обслуживает один поток: колесо таймеров, бюджет частиц,
+ * очередь залпов и группировка взрывов. На обычном сервере такой регион один на весь сервер.
+ * На Folia регионы нарезаются по секциям чанков не крупнее секций самого сервера, поэтому
+ * каждый целиком принадлежит одному региону Folia и работает без блокировок.
+ * Простаивающий регион Folia снимает свой таймер и удаляется из {@link ArtilleryManager}
+ */
+public class ArtilleryRegion {
+    private static final int IDLE_TICKS_BEFORE_RELEASE = 200;
+
+    private final ArtilleryScheduler scheduler;
+    private final Location anchor;
+    private final Consumer<ArtilleryRegion> onRelease;
+    private final ParticleService particleService;
+    private final TimingWheel timingWheel;
+    private final VolleyScheduler volleyScheduler;
+    private final ExplosionCoordinator explosionCoordinator;
+    private final ArtilleryScheduler.Task heartbeat;
+    private int idleTicks = 0;
+
+    /**
+     * @param anchor    точка, в регионе которой выполняются таймеры; null - основной поток
+     * @param onRelease вызывается, когда простаивающий регион снял свой таймер
+     */
+    public ArtilleryRegion(ArtilleryPlugin plugin, ArtilleryScheduler scheduler, InFlightBudget budget,
+                           AsyncExplosionService asyncExplosions, Location anchor,
+                           Consumer<ArtilleryRegion> onRelease) {
+        this.scheduler = scheduler;
+        this.anchor = anchor;
+        this.onRelease = onRelease;
+        this.particleService = new ParticleService(plugin, scheduler);
+        this.timingWheel = new TimingWheel(plugin, this);
+        this.volleyScheduler = new VolleyScheduler(plugin, this, budget);
+        this.explosionCoordinator = plugin.getConfig().getBoolean("explosion-coordinator.enabled", true)
+                ? new ExplosionCoordinator(plugin, timingWheel, particleService, asyncExplosions)
+                : null;
+        this.heartbeat = runTimer(this::heartbeat, 1L, 1L);
+    }
+
+    /**
+     * Таймер в потоке этого региона
+     */
+    ArtilleryScheduler.Task runTimer(Runnable task, long delayTicks, long periodTicks) {
+        return anchor != null
+                ? scheduler.runTimer(anchor, task, delayTicks, periodTicks)
+                : scheduler.runGlobalTimer(task, delayTicks, periodTicks);
+    }
+
+    public ParticleService getParticleService() {
+        return particleService;
+    }
+
+    public TimingWheel getTimingWheel() {
+        return timingWheel;
+    }
+
+    public VolleyScheduler getVolleyScheduler() {
+        return volleyScheduler;
+    }
+
+    /**
+     * @return null, если группировка взрывов выключена
+     */
+    public ExplosionCoordinator getExplosionCoordinator() {
+        return explosionCoordinator;
+    }
+
+    public void clear() {
+        heartbeat.cancel();
+        if (explosionCoordinator != null) {
+            explosionCoordinator.clear();
+        }
+        timingWheel.clear();
+        volleyScheduler.clear();
+    }
+
+    private void heartbeat() {
+        particleService.tick();
+
+        if (anchor == null) {
+            return;
+        }
+
+        boolean idle = timingWheel.size() == 0 && volleyScheduler.isEmpty() &&
+                (explosionCoordinator == null || explosionCoordinator.getPendingCount() == 0);
+        idleTicks = idle ? idleTicks + 1 : 0;
+
+        if (idleTicks >= IDLE_TICKS_BEFORE_RELEASE) {
+            heartbeat.cancel();
+            onRelease.accept(this);
+        }
+    }
+}
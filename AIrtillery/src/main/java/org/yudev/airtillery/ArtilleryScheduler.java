@@ -0,0 +1,75 @@
+package org.yudev.airtillery;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * Планирование задач артиллерии. На обычном сервере все задачи идут через BukkitScheduler
+ * в основном потоке. На Folia задача выполняется в потоке региона, которому принадлежит точка
+ * или сущность, так что обстрелы в разных регионах обсчитываются параллельно
+ */
+public interface ArtilleryScheduler {
+
+    /**
+     * true на Folia: у каждого региона свой поток, общего основного потока нет
+     */
+    boolean isRegionized();
+
+    /**
+     * Выполняет задачу в следующем тике в потоке, которому принадлежит точка
+     */
+    void run(Location location, Runnable task);
+
+    Task runTimer(Location location, Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Задача следует за сущностью при переходе между регионами.
+     * retired выполняется вместо нее, если сущность к тому времени удалена или выгружена
+     */
+    void runForEntity(Entity entity, Runnable task, Runnable retired);
+
+    Task runForEntityTimer(Entity entity, Runnable task, Runnable retired, long delayTicks, long periodTicks);
+
+    /**
+     * Таймер без привязки к месту: основной поток или глобальный регион Folia.
+     * Сущности и блоки из него трогать нельзя
+     */
+    Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks);
+
+    void runAsync(Runnable task);
+
+    boolean isOwnedByCurrentRegion(Location location);
+
+    boolean isOwnedByCurrentRegion(Entity entity);
+
+    /**
+     * Игроки мира, чье положение можно читать из текущего потока:
+     * на обычном сервере все игроки мира, на Folia - только игроки текущего региона
+     */
+    List<Player> getPlayers(World world);
+
+    void cancelTasks();
+
+    static ArtilleryScheduler create(ArtilleryPlugin plugin) {
+        if (FoliaArtilleryScheduler.isSupported()) {
+            try {
+                return new FoliaArtilleryScheduler(plugin);
+            } catch (ReflectiveOperationException e) {
+                plugin.getLogger().log(Level.SEVERE, "Folia detected, but its schedulers are unavailable", e);
+            }
+        }
+        return new BukkitArtilleryScheduler(plugin);
+    }
+
+    /**
+     * Запланированная повторяющаяся задача
+     */
+    interface Task {
+        void cancel();
+    }
+}
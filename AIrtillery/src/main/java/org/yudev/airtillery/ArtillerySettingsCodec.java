@@ -0,0 +1,121 @@
+package org.yudev.airtillery;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Двоичная запись настроек артиллерии в один тег предмета.
+ * Формат: версия (1 байт), идентификатор предмета (8 байт), затем поля настроек.
+ * Версия 2 добавила число целей; предметы версии 1 читаются с одной целью.
+ * Разобранные настройки кешируются по идентификатору, поэтому повторные клики
+ * тем же предметом не разбирают данные заново. На Folia кодек вызывается из потоков
+ * разных регионов, поэтому кеш синхронизирован
+ */
+public class ArtillerySettingsCodec {
+    public static final byte VERSION = 2;
+    private static final int HEADER_SIZE = 9;
+    private static final int MAX_CACHED = 256;
+
+    private static final int FLAG_DEBUG = 1;
+    private static final int FLAG_POTION = 2;
+
+    private final Map<Long, ArtilleryManager.ArtillerySettings> cache = Collections.synchronizedMap(
+            new LinkedHashMap<Long, ArtilleryManager.ArtillerySettings>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, ArtilleryManager.ArtillerySettings> eldest) {
+                    return size() > MAX_CACHED;
+                }
+            });
+
+    public byte[] encode(long itemId, ArtilleryManager.ArtillerySettings settings) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeLong(itemId);
+
+            int flags = (settings.isDebug() ? FLAG_DEBUG : 0) | (settings.getPotionEffect() != null ? FLAG_POTION : 0);
+            out.writeByte(flags);
+            out.writeUTF(settings.getFireMode());
+            out.writeUTF(settings.getProjectileType());
+            out.writeUTF(settings.getPattern());
+            out.writeInt(settings.getMaxRange());
+            out.writeInt(settings.getProjectileCount());
+            out.writeDouble(settings.getRadius());
+            out.writeInt(settings.getMaxTargets());
+
+            if (settings.getPotionEffect() != null) {
+                out.writeUTF(settings.getPotionEffect());
+                out.writeInt(settings.getPotionDuration());
+                out.writeInt(settings.getPotionAmplifier());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode artillery settings", e);
+        }
+
+        cache.put(itemId, settings);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return настройки или null, если данные повреждены или записаны неизвестной версией
+     */
+    public ArtilleryManager.ArtillerySettings decode(byte[] data) {
+        if (data == null || data.length < HEADER_SIZE || data[0] < 1 || data[0] > VERSION) {
+            return null;
+        }
+
+        long itemId = readLong(data, 1);
+        ArtilleryManager.ArtillerySettings settings = cache.get(itemId);
+        if (settings != null) {
+            return settings;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(data, HEADER_SIZE, data.length - HEADER_SIZE))) {
+            int flags = in.readUnsignedByte();
+            String fireMode = in.readUTF();
+            String projectileType = in.readUTF();
+            String pattern = in.readUTF();
+            int maxRange = in.readInt();
+            int projectileCount = in.readInt();
+            double radius = in.readDouble();
+            int maxTargets = data[0] >= 2 ? in.readInt() : 1;
+
+            String potionEffect = null;
+            int potionDuration = 200;
+            int potionAmplifier = 0;
+            if ((flags & FLAG_POTION) != 0) {
+                potionEffect = in.readUTF();
+                potionDuration = in.readInt();
+                potionAmplifier = in.readInt();
+            }
+
+            settings = new ArtilleryManager.ArtillerySettings((flags & FLAG_DEBUG) != 0, fireMode, projectileType,
+                    pattern, maxRange, projectileCount, radius, maxTargets,
+                    potionEffect, potionDuration, potionAmplifier);
+        } catch (IOException e) {
+            return null;
+        }
+
+        cache.put(itemId, settings);
+        return settings;
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    private static long readLong(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (data[offset + i] & 0xFF);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,62 @@
+package org.yudev.airtillery;
+
+import org.bukkit.entity.Player;
+
+import java.util.UUID;
+
+/**
+ * Тот, кто ведет обстрел: игрок с артиллерийским предметом или установка.
+ * По идентификатору стрелка считаются лимиты снарядов в полете и очередь залпов
+ */
+public interface ArtilleryShooter {
+
+    UUID getUniqueId();
+
+    String getName();
+
+    /**
+     * false, если игрок вышел с сервера, а установка разрушена или выгружена вместе с чанком
+     */
+    boolean isActive();
+
+    /**
+     * Сообщение о ходе обстрела; установки их не получают
+     */
+    void sendMessage(String message);
+
+    static ArtilleryShooter of(Player player) {
+        return new PlayerShooter(player);
+    }
+
+    final class PlayerShooter implements ArtilleryShooter {
+        private final Player player;
+
+        private PlayerShooter(Player player) {
+            this.player = player;
+        }
+
+        public Player getPlayer() {
+            return player;
+        }
+
+        @Override
+        public UUID getUniqueId() {
+            return player.getUniqueId();
+        }
+
+        @Override
+        public String getName() {
+            return player.getName();
+        }
+
+        @Override
+        public boolean isActive() {
+            return player.isOnline();
+        }
+
+        @Override
+        public void sendMessage(String message) {
+            player.sendMessage(message);
+        }
+    }
+}
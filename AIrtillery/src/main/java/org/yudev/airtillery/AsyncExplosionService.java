@@ -0,0 +1,508 @@
+package org.yudev.airtillery;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Sound;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.entity.Damageable;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.TNTPrimed;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.inventory.EntityEquipment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.Vector;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Взрывы артиллерии вне основного потока. В основном потоке снимаются снимки чанков и позиции
+ * сущностей вокруг взрыва; лучи взрыва и урон по сущностям считаются асинхронно по снимкам,
+ * как в ванильном взрыве; разрушение блоков применяется обратно в основном потоке порциями,
+ * ограниченными по числу блоков и времени за тик
+ */
+public class AsyncExplosionService {
+    private static final int RAY_GRID = 16;
+    private static final double RAY_STEP = 0.3;
+    private static final int EXPOSURE_SAMPLES = 3;
+
+    private final ArtilleryPlugin plugin;
+    private final int maxBlocksPerTick;
+    private final long maxApplyNanos;
+    private final Random random = new Random();
+
+    private final ArrayDeque<Commit> commits = new ArrayDeque<>();
+    private BukkitTask task;
+
+    public AsyncExplosionService(ArtilleryPlugin plugin) {
+        this.plugin = plugin;
+        this.maxBlocksPerTick = Math.max(1, plugin.getConfig().getInt("async-explosions.max-blocks-per-tick", 1500));
+        this.maxApplyNanos = plugin.getConfig().getLong("async-explosions.max-apply-us", 2000) * 1000;
+    }
+
+    /**
+     * Снимает окружение взрыва и отправляет расчет в асинхронную задачу
+     */
+    public void explode(Location center, float power) {
+        World world = center.getWorld();
+        world.playSound(center, Sound.ENTITY_GENERIC_EXPLODE, 4.0F, 0.7F + random.nextFloat() * 0.2F);
+
+        Snapshot snapshot = new Snapshot(world, center, power);
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            Result result = compute(snapshot);
+            plugin.getServer().getScheduler().runTask(plugin, () -> enqueue(snapshot, result));
+        });
+    }
+
+    /**
+     * Переносит разрушение блоков уже рассчитанного ванильного взрыва в порционное применение
+     */
+    public void commitLater(List<Block> blocks, float yield) {
+        if (blocks.isEmpty()) {
+            return;
+        }
+        schedule(new Commit(new ArrayList<>(blocks), yield));
+    }
+
+    public int getPendingBlocks() {
+        int pending = 0;
+        for (Commit commit : commits) {
+            pending += commit.blocks.size() - commit.cursor;
+        }
+        return pending;
+    }
+
+    public void clear() {
+        commits.clear();
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private void enqueue(Snapshot snapshot, Result result) {
+        World world = snapshot.world;
+        Location center = new Location(world, snapshot.x, snapshot.y, snapshot.z);
+
+        for (int i = 0; i < snapshot.entities.size(); i++) {
+            Entity entity = snapshot.entities.get(i);
+            if (!entity.isValid() || result.impact[i] <= 0) {
+                continue;
+            }
+
+            // Защитные плагины видят урон как урон от взрыва блока и могут отменить его вместе с отбрасыванием
+            EntityDamageEvent event = new EntityDamageEvent(entity, EntityDamageEvent.DamageCause.BLOCK_EXPLOSION,
+                    result.damage[i]);
+            plugin.getServer().getPluginManager().callEvent(event);
+            if (event.isCancelled()) {
+                continue;
+            }
+
+            double knockback = 1.0;
+            if (entity instanceof LivingEntity) {
+                LivingEntity living = (LivingEntity) entity;
+                living.damage(event.getDamage() * (1 - blastProtectionFactor(living) / 25.0));
+
+                int maxLevel = maxBlastProtection(living);
+                knockback -= Math.floor(result.impact[i] * maxLevel * 0.15) / result.impact[i];
+            } else if (entity instanceof Damageable) {
+                ((Damageable) entity).damage(event.getDamage());
+            }
+
+            entity.setVelocity(entity.getVelocity().add(new Vector(
+                    result.knockbackX[i], result.knockbackY[i], result.knockbackZ[i]).multiply(knockback)));
+        }
+
+        if (result.blocks.length == 0) {
+            return;
+        }
+
+        List<Block> blocks = new ArrayList<>(result.blocks.length);
+        for (long packed : result.blocks) {
+            blocks.add(world.getBlockAt(unpackX(packed), unpackY(packed), unpackZ(packed)));
+        }
+
+        // Защитные плагины видят разрушение блоков так же, как createExplosion без источника
+        BlockExplodeEvent event = new BlockExplodeEvent(center.getBlock(), blocks, 1.0F / snapshot.power);
+        plugin.getServer().getPluginManager().callEvent(event);
+        if (event.isCancelled()) {
+            return;
+        }
+
+        schedule(new Commit(event.blockList(), event.getYield()));
+    }
+
+    private void schedule(Commit commit) {
+        commits.add(commit);
+
+        if (task == null) {
+            task = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    applyBatch();
+                }
+            }.runTaskTimer(plugin, 1L, 1L);
+        }
+    }
+
+    private void applyBatch() {
+        long deadline = System.nanoTime() + maxApplyNanos;
+        int applied = 0;
+
+        while (!commits.isEmpty() && applied < maxBlocksPerTick && System.nanoTime() < deadline) {
+            Commit commit = commits.peek();
+
+            int end = Math.min(commit.blocks.size(), commit.cursor + 64);
+            for (; commit.cursor < end; commit.cursor++) {
+                Block block = commit.blocks.get(commit.cursor);
+                if (block.getType().isAir()) {
+                    continue;
+                }
+
+                if (block.getType() == Material.TNT) {
+                    // Как в ванильном взрыве, TNT в зоне взрыва поджигается, а не выпадает предметом
+                    block.setType(Material.AIR, false);
+                    TNTPrimed tnt = block.getWorld().spawn(block.getLocation().add(0.5, 0, 0.5), TNTPrimed.class);
+                    tnt.setFuseTicks(10 + random.nextInt(20));
+                } else if (random.nextFloat() < commit.yield) {
+                    block.breakNaturally();
+                } else {
+                    block.setType(Material.AIR, false);
+                }
+                applied++;
+            }
+
+            if (commit.cursor >= commit.blocks.size()) {
+                commits.poll();
+            }
+        }
+
+        if (commits.isEmpty()) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Вклад зачарования "Взрывоустойчивость" в защиту брони, как в ванили: по 2 за уровень
+     * на каждом предмете, не больше 20. Обычную защиту учитывает сам damage
+     */
+    private static int blastProtectionFactor(LivingEntity entity) {
+        int factor = 0;
+        for (ItemStack armor : armorOf(entity)) {
+            if (armor != null) {
+                factor += armor.getEnchantmentLevel(Enchantment.PROTECTION_EXPLOSIONS) * 2;
+            }
+        }
+        return Math.min(20, factor);
+    }
+
+    /**
+     * Наибольший уровень "Взрывоустойчивости" на броне: он ослабляет отбрасывание
+     */
+    private static int maxBlastProtection(LivingEntity entity) {
+        int level = 0;
+        for (ItemStack armor : armorOf(entity)) {
+            if (armor != null) {
+                level = Math.max(level, armor.getEnchantmentLevel(Enchantment.PROTECTION_EXPLOSIONS));
+            }
+        }
+        return level;
+    }
+
+    private static ItemStack[] armorOf(LivingEntity entity) {
+        EntityEquipment equipment = entity.getEquipment();
+        return equipment != null ? equipment.getArmorContents() : new ItemStack[0];
+    }
+
+    /**
+     * Расчет по снимку: лучи ванильного взрыва и урон по сущностям с учетом укрытия
+     */
+    private static Result compute(Snapshot snapshot) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] blocks = new long[256];
+        int count = 0;
+
+        for (int i = 0; i < RAY_GRID; i++) {
+            for (int j = 0; j < RAY_GRID; j++) {
+                for (int k = 0; k < RAY_GRID; k++) {
+                    if (i != 0 && i != RAY_GRID - 1 && j != 0 && j != RAY_GRID - 1 && k != 0 && k != RAY_GRID - 1) {
+                        continue;
+                    }
+
+                    double dx = i / (RAY_GRID - 1.0) * 2 - 1;
+                    double dy = j / (RAY_GRID - 1.0) * 2 - 1;
+                    double dz = k / (RAY_GRID - 1.0) * 2 - 1;
+                    double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                    dx = dx / length * RAY_STEP;
+                    dy = dy / length * RAY_STEP;
+                    dz = dz / length * RAY_STEP;
+
+                    double intensity = snapshot.power * (0.7 + random.nextDouble() * 0.6);
+                    double x = snapshot.x;
+                    double y = snapshot.y;
+                    double z = snapshot.z;
+
+                    while (intensity > 0) {
+                        int bx = floor(x);
+                        int by = floor(y);
+                        int bz = floor(z);
+                        Material type = snapshot.getType(bx, by, bz);
+                        if (type == null) {
+                            break;
+                        }
+
+                        if (!type.isAir()) {
+                            intensity -= (type.getBlastResistance() + 0.3) * RAY_STEP;
+                            if (intensity > 0) {
+                                if (count == blocks.length) {
+                                    blocks = Arrays.copyOf(blocks, count * 2);
+                                }
+                                blocks[count++] = pack(bx, by, bz);
+                            }
+                        }
+
+                        x += dx;
+                        y += dy;
+                        z += dz;
+                        intensity -= 0.22500001;
+                    }
+                }
+            }
+        }
+
+        Arrays.sort(blocks, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || blocks[i] != blocks[unique - 1]) {
+                blocks[unique++] = blocks[i];
+            }
+        }
+
+        Result result = new Result(Arrays.copyOf(blocks, unique), snapshot.entities.size());
+        double reach = snapshot.power * 2.0;
+
+        for (int i = 0; i < result.impact.length; i++) {
+            double dx = snapshot.entityX[i] - snapshot.x;
+            double dy = snapshot.entityY[i] + snapshot.entityEyeHeight[i] - snapshot.y;
+            double dz = snapshot.entityZ[i] - snapshot.z;
+            double feetDistance = Math.sqrt(dx * dx + (snapshot.entityY[i] - snapshot.y) * (snapshot.entityY[i] - snapshot.y)
+                    + dz * dz) / reach;
+            double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            if (feetDistance > 1 || length == 0) {
+                continue;
+            }
+
+            double impact = (1 - feetDistance) * exposure(snapshot, i);
+            result.impact[i] = impact;
+            result.damage[i] = (int) ((impact * impact + impact) / 2 * 7 * reach + 1);
+            result.knockbackX[i] = dx / length * impact;
+            result.knockbackY[i] = dy / length * impact;
+            result.knockbackZ[i] = dz / length * impact;
+        }
+
+        return result;
+    }
+
+    /**
+     * Доля точек в габаритах сущности, которые видны из центра взрыва
+     */
+    private static double exposure(Snapshot snapshot, int entity) {
+        int visible = 0;
+        int total = 0;
+
+        for (int i = 0; i < EXPOSURE_SAMPLES; i++) {
+            for (int j = 0; j < EXPOSURE_SAMPLES; j++) {
+                for (int k = 0; k < EXPOSURE_SAMPLES; k++) {
+                    double fx = i / (EXPOSURE_SAMPLES - 1.0) - 0.5;
+                    double fy = j / (EXPOSURE_SAMPLES - 1.0);
+                    double fz = k / (EXPOSURE_SAMPLES - 1.0) - 0.5;
+
+                    double tx = snapshot.entityX[entity] + fx * snapshot.entityWidth[entity];
+                    double ty = snapshot.entityY[entity] + fy * snapshot.entityHeight[entity];
+                    double tz = snapshot.entityZ[entity] + fz * snapshot.entityWidth[entity];
+
+                    if (isClear(snapshot, tx, ty, tz)) {
+                        visible++;
+                    }
+                    total++;
+                }
+            }
+        }
+
+        return visible / (double) total;
+    }
+
+    private static boolean isClear(Snapshot snapshot, double tx, double ty, double tz) {
+        double dx = tx - snapshot.x;
+        double dy = ty - snapshot.y;
+        double dz = tz - snapshot.z;
+        double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        int steps = (int) (length / RAY_STEP);
+
+        for (int step = 1; step <= steps; step++) {
+            double t = step * RAY_STEP / length;
+            Material type = snapshot.getType(
+                    floor(snapshot.x + dx * t), floor(snapshot.y + dy * t), floor(snapshot.z + dz * t));
+            if (type != null && type.isSolid()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int floor(double value) {
+        int i = (int) value;
+        return value < i ? i - 1 : i;
+    }
+
+    private static long pack(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | ((long) y & 0xFFF);
+    }
+
+    private static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    private static int unpackY(long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    private static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+
+    /**
+     * Снимок окружения взрыва, снимается в основном потоке и дальше только читается
+     */
+    private static final class Snapshot {
+        private final World world;
+        private final double x;
+        private final double y;
+        private final double z;
+        private final float power;
+        private final int minChunkX;
+        private final int minChunkZ;
+        private final int chunksX;
+        private final int chunksZ;
+        private final int maxHeight;
+        private final ChunkSnapshot[] chunks;
+
+        private final List<Entity> entities = new ArrayList<>();
+        private final double[] entityX;
+        private final double[] entityY;
+        private final double[] entityZ;
+        private final double[] entityWidth;
+        private final double[] entityHeight;
+        private final double[] entityEyeHeight;
+
+        Snapshot(World world, Location center, float power) {
+            this.world = world;
+            this.x = center.getX();
+            this.y = center.getY();
+            this.z = center.getZ();
+            this.power = power;
+            this.maxHeight = world.getMaxHeight();
+
+            // Луч с максимальной начальной силой гаснет примерно через 1.3 * power / 0.225 шагов
+            double reach = 1.3 * power / 0.22500001 * RAY_STEP + 1;
+            this.minChunkX = floor(x - reach) >> 4;
+            this.minChunkZ = floor(z - reach) >> 4;
+            this.chunksX = (floor(x + reach) >> 4) - minChunkX + 1;
+            this.chunksZ = (floor(z + reach) >> 4) - minChunkZ + 1;
+            this.chunks = new ChunkSnapshot[chunksX * chunksZ];
+
+            for (int cx = 0; cx < chunksX; cx++) {
+                for (int cz = 0; cz < chunksZ; cz++) {
+                    if (world.isChunkLoaded(minChunkX + cx, minChunkZ + cz)) {
+                        chunks[cx * chunksZ + cz] =
+                                world.getChunkAt(minChunkX + cx, minChunkZ + cz).getChunkSnapshot(false, false, false);
+                    }
+                }
+            }
+
+            double entityReach = power * 2.0;
+            Collection<Entity> nearby = world.getNearbyEntities(center, entityReach, entityReach, entityReach);
+            entities.addAll(nearby);
+
+            int size = entities.size();
+            entityX = new double[size];
+            entityY = new double[size];
+            entityZ = new double[size];
+            entityWidth = new double[size];
+            entityHeight = new double[size];
+            entityEyeHeight = new double[size];
+
+            for (int i = 0; i < size; i++) {
+                Entity entity = entities.get(i);
+                Location location = entity.getLocation();
+                entityX[i] = location.getX();
+                entityY[i] = location.getY();
+                entityZ[i] = location.getZ();
+                entityWidth[i] = entity.getWidth();
+                entityHeight[i] = entity.getHeight();
+                entityEyeHeight[i] = entity instanceof LivingEntity
+                        ? ((LivingEntity) entity).getEyeHeight() : entity.getHeight() * 0.85;
+            }
+        }
+
+        /**
+         * @return тип блока или null, если блок вне снимка
+         */
+        Material getType(int bx, int by, int bz) {
+            if (by < 0 || by >= maxHeight) {
+                return null;
+            }
+
+            int cx = (bx >> 4) - minChunkX;
+            int cz = (bz >> 4) - minChunkZ;
+            if (cx < 0 || cz < 0 || cx >= chunksX || cz >= chunksZ) {
+                return null;
+            }
+
+            ChunkSnapshot chunk = chunks[cx * chunksZ + cz];
+            return chunk != null ? chunk.getBlockType(bx & 15, by, bz & 15) : null;
+        }
+    }
+
+    private static final class Result {
+        private final long[] blocks;
+        private final double[] impact;
+        private final double[] damage;
+        private final double[] knockbackX;
+        private final double[] knockbackY;
+        private final double[] knockbackZ;
+
+        Result(long[] blocks, int entities) {
+            this.blocks = blocks;
+            this.impact = new double[entities];
+            this.damage = new double[entities];
+            this.knockbackX = new double[entities];
+            this.knockbackY = new double[entities];
+            this.knockbackZ = new double[entities];
+        }
+    }
+
+    private static final class Commit {
+        private final List<Block> blocks;
+        private final float yield;
+        private int cursor = 0;
+
+        Commit(List<Block> blocks, float yield) {
+            this.blocks = blocks;
+            this.yield = yield;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.yudev.airtillery;
+
+import java.util.Random;
+
+/**
+ * Шаблон распределения точек залпа вокруг цели.
+ * Смещения записываются тройками (вдоль, поперек, высота): первые два значения в долях радиуса
+ * в системе координат выстрела (ось «вдоль» направлена от орудия к цели), высота в блоках.
+ * Центральная точка залпа добавляется отдельно, шаблон ее не включает
+ */
+public interface BarragePattern {
+    int STRIDE = 3;
+
+    String getName();
+
+    /**
+     * Записывает count смещений в out, не создавая объектов
+     *
+     * @param out массив длиной не меньше count * STRIDE
+     */
+    void generate(int count, Random random, double[] out);
+}
@@ -0,0 +1,365 @@
+package org.yudev.airtillery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Реестр шаблонов залпа. Встроенные шаблоны регистрируются сразу, сторонние добавляются
+ * через {@link #register(BarragePattern)}
+ */
+public class BarragePatterns {
+    public static final String DEFAULT = "RANDOM";
+
+    private final Map<String, BarragePattern> patterns = new LinkedHashMap<>();
+
+    public BarragePatterns() {
+        register(new UniformPattern());
+        register(new ConcentratedPattern());
+        register(new RandomPattern());
+        register(new HexPattern());
+        register(new PoissonDiskPattern());
+        register(new LinePattern());
+        register(new CreepingPattern());
+    }
+
+    public void register(BarragePattern pattern) {
+        patterns.put(pattern.getName().toUpperCase(), pattern);
+    }
+
+    /**
+     * @return шаблон по имени или {@link #DEFAULT}, если такого нет
+     */
+    public BarragePattern get(String name) {
+        BarragePattern pattern = name != null ? patterns.get(name.toUpperCase()) : null;
+        return pattern != null ? pattern : patterns.get(DEFAULT);
+    }
+
+    public boolean contains(String name) {
+        return patterns.containsKey(name.toUpperCase());
+    }
+
+    public List<String> getNames() {
+        return new ArrayList<>(patterns.keySet());
+    }
+
+    /**
+     * Шаблон с детерминированной раскладкой: таблица смещений считается один раз
+     * для каждого числа точек и дальше только копируется
+     */
+    public abstract static class TabulatedPattern implements BarragePattern {
+        private static final int MAX_TABLES = 64;
+
+        private final Map<Integer, double[]> tables = new HashMap<>();
+
+        @Override
+        public void generate(int count, Random random, double[] out) {
+            double[] table = tables.get(count);
+            if (table == null) {
+                if (tables.size() >= MAX_TABLES) {
+                    tables.clear();
+                }
+                table = build(count);
+                tables.put(count, table);
+            }
+            System.arraycopy(table, 0, out, 0, count * STRIDE);
+        }
+
+        protected abstract double[] build(int count);
+    }
+
+    /**
+     * Точки равномерно по окружности радиуса R
+     */
+    public static class UniformPattern extends TabulatedPattern {
+        @Override
+        public String getName() {
+            return "UNIFORM";
+        }
+
+        @Override
+        protected double[] build(int count) {
+            double[] table = new double[count * STRIDE];
+            double angleStep = 2 * Math.PI / count;
+            for (int i = 0; i < count; i++) {
+                table[i * STRIDE] = Math.cos(i * angleStep);
+                table[i * STRIDE + 1] = Math.sin(i * angleStep);
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Несколько колец, внутренние кольца получают больше точек
+     */
+    public static class ConcentratedPattern extends TabulatedPattern {
+        @Override
+        public String getName() {
+            return "CONCENTRATED";
+        }
+
+        @Override
+        protected double[] build(int count) {
+            double[] table = new double[count * STRIDE];
+            int rings = Math.max(1, Math.min(5, count / 5));
+            int remainingPoints = count;
+            int index = 0;
+
+            for (int ring = 0; ring < rings && remainingPoints > 0; ring++) {
+                double ringWeight = (rings - ring) / (double) rings;
+                int ringPoints = ring == rings - 1 ? remainingPoints : (int) (remainingPoints * ringWeight);
+                double ringRadius = 0.2 + 0.8 * (ring + 1) / rings;
+
+                double angleStep = 2 * Math.PI / ringPoints;
+                for (int i = 0; i < ringPoints; i++) {
+                    table[index * STRIDE] = ringRadius * Math.cos(i * angleStep);
+                    table[index * STRIDE + 1] = ringRadius * Math.sin(i * angleStep);
+                    index++;
+                }
+
+                remainingPoints -= ringPoints;
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Случайные точки, равномерно распределенные по кругу, с разбросом по высоте в полблока
+     */
+    public static class RandomPattern implements BarragePattern {
+        @Override
+        public String getName() {
+            return "RANDOM";
+        }
+
+        @Override
+        public void generate(int count, Random random, double[] out) {
+            for (int i = 0; i < count; i++) {
+                double angle = random.nextDouble() * 2 * Math.PI;
+                double distance = Math.sqrt(random.nextDouble());
+                out[i * STRIDE] = distance * Math.cos(angle);
+                out[i * STRIDE + 1] = distance * Math.sin(angle);
+                out[i * STRIDE + 2] = random.nextDouble() - 0.5;
+            }
+        }
+    }
+
+    /**
+     * Шестиугольная решетка внутри круга: при том же числе снарядов дает наименьшие промежутки
+     * между воронками. Шаг подбирается так, чтобы в круг попало ровно нужное число узлов,
+     * узлы выдаются от центра к краю
+     */
+    public static class HexPattern extends TabulatedPattern {
+        private static final double ROW_HEIGHT = Math.sqrt(3) / 2;
+
+        @Override
+        public String getName() {
+            return "HEX";
+        }
+
+        @Override
+        protected double[] build(int count) {
+            // Площадь ячейки решетки с шагом s равна (sqrt(3)/2) * s^2, центральный узел занят центром залпа
+            double spacing = Math.sqrt(Math.PI / (ROW_HEIGHT * (count + 1)));
+            double[] nodes;
+            while ((nodes = nodesInUnitDisk(spacing)).length / 2 < count + 1) {
+                spacing *= 0.97;
+            }
+
+            Integer[] order = new Integer[nodes.length / 2];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            final double[] sorted = nodes;
+            Arrays.sort(order, (a, b) -> Double.compare(
+                    sorted[a * 2] * sorted[a * 2] + sorted[a * 2 + 1] * sorted[a * 2 + 1],
+                    sorted[b * 2] * sorted[b * 2] + sorted[b * 2 + 1] * sorted[b * 2 + 1]));
+
+            double[] table = new double[count * STRIDE];
+            for (int i = 0; i < count; i++) {
+                int node = order[i + 1];
+                table[i * STRIDE] = nodes[node * 2];
+                table[i * STRIDE + 1] = nodes[node * 2 + 1];
+            }
+            return table;
+        }
+
+        private static double[] nodesInUnitDisk(double spacing) {
+            int rows = (int) Math.ceil(1 / (spacing * ROW_HEIGHT));
+            int columns = (int) Math.ceil(1 / spacing) + 1;
+            double[] nodes = new double[(2 * rows + 1) * (2 * columns + 1) * 2];
+            int size = 0;
+
+            for (int row = -rows; row <= rows; row++) {
+                double v = row * spacing * ROW_HEIGHT;
+                double shift = (row & 1) != 0 ? spacing / 2 : 0;
+                for (int column = -columns; column <= columns; column++) {
+                    double u = column * spacing + shift;
+                    if (u * u + v * v <= 1) {
+                        nodes[size++] = u;
+                        nodes[size++] = v;
+                    }
+                }
+            }
+            return Arrays.copyOf(nodes, size);
+        }
+    }
+
+    /**
+     * Случайная раскладка без скоплений: между точками выдерживается минимальное расстояние.
+     * Несколько раскладок на каждое число точек строятся заранее, при выстреле выбирается одна
+     * из них и поворачивается на случайный угол
+     */
+    public static class PoissonDiskPattern implements BarragePattern {
+        private static final int VARIANTS = 4;
+        private static final int MAX_TABLES = 64;
+        private static final int ATTEMPTS_PER_POINT = 30;
+
+        private final Map<Integer, double[][]> tables = new HashMap<>();
+
+        @Override
+        public String getName() {
+            return "POISSON";
+        }
+
+        @Override
+        public void generate(int count, Random random, double[] out) {
+            double[][] variants = tables.get(count);
+            if (variants == null) {
+                if (tables.size() >= MAX_TABLES) {
+                    tables.clear();
+                }
+                variants = new double[VARIANTS][];
+                Random seeded = new Random(count);
+                for (int i = 0; i < VARIANTS; i++) {
+                    variants[i] = build(count, seeded);
+                }
+                tables.put(count, variants);
+            }
+
+            double[] table = variants[random.nextInt(VARIANTS)];
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double cos = Math.cos(angle);
+            double sin = Math.sin(angle);
+            for (int i = 0; i < count; i++) {
+                double u = table[i * STRIDE];
+                double v = table[i * STRIDE + 1];
+                out[i * STRIDE] = u * cos - v * sin;
+                out[i * STRIDE + 1] = u * sin + v * cos;
+                out[i * STRIDE + 2] = 0;
+            }
+        }
+
+        private static double[] build(int count, Random random) {
+            double[] table = new double[count * STRIDE];
+            // Случайное бросание не достигает плотной упаковки, поэтому начальное расстояние
+            // берется заметно меньше шага шестиугольной решетки с тем же числом узлов
+            double minDistance = 0.7 * Math.sqrt(2 * Math.PI / (Math.sqrt(3) * (count + 1)));
+
+            while (true) {
+                double minDistanceSquared = minDistance * minDistance;
+
+                // В ячейке сетки со стороной minDistance / sqrt(2) помещается не больше одной точки
+                double cellSize = minDistance / Math.sqrt(2);
+                int gridSize = (int) Math.ceil(2 / cellSize);
+                int[] grid = new int[gridSize * gridSize];
+                int placed = 0;
+
+                for (int attempt = 0; attempt < count * ATTEMPTS_PER_POINT && placed < count; attempt++) {
+                    double angle = random.nextDouble() * 2 * Math.PI;
+                    double distance = Math.sqrt(random.nextDouble());
+                    double u = distance * Math.cos(angle);
+                    double v = distance * Math.sin(angle);
+
+                    // Центр уже занят центральной точкой залпа
+                    if (u * u + v * v < minDistanceSquared) {
+                        continue;
+                    }
+
+                    int cellU = Math.min(gridSize - 1, (int) ((u + 1) / cellSize));
+                    int cellV = Math.min(gridSize - 1, (int) ((v + 1) / cellSize));
+                    boolean free = true;
+
+                    for (int gu = Math.max(0, cellU - 2); gu <= Math.min(gridSize - 1, cellU + 2) && free; gu++) {
+                        for (int gv = Math.max(0, cellV - 2); gv <= Math.min(gridSize - 1, cellV + 2) && free; gv++) {
+                            int other = grid[gu * gridSize + gv] - 1;
+                            if (other >= 0) {
+                                double du = table[other * STRIDE] - u;
+                                double dv = table[other * STRIDE + 1] - v;
+                                free = du * du + dv * dv >= minDistanceSquared;
+                            }
+                        }
+                    }
+
+                    if (free) {
+                        table[placed * STRIDE] = u;
+                        table[placed * STRIDE + 1] = v;
+                        grid[cellU * gridSize + cellV] = ++placed;
+                    }
+                }
+
+                if (placed == count) {
+                    return table;
+                }
+                minDistance *= 0.9;
+            }
+        }
+    }
+
+    /**
+     * Заградительная линия поперек направления огня, точки расходятся от центра в обе стороны
+     */
+    public static class LinePattern extends TabulatedPattern {
+        @Override
+        public String getName() {
+            return "LINE";
+        }
+
+        @Override
+        protected double[] build(int count) {
+            double[] table = new double[count * STRIDE];
+            double step = 1.0 / ((count + 1) / 2);
+            for (int i = 0; i < count; i++) {
+                int k = i / 2 + 1;
+                table[i * STRIDE + 1] = (i % 2 == 0 ? k : -k) * step;
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Огневой вал: ряды поперек направления огня, идущие от ближнего края круга к дальнему.
+     * Длина ряда ограничена кругом радиуса R.
+     * В режиме RAIN снаряды ложатся в порядке таблицы, поэтому разрывы смещаются вперед
+     */
+    public static class CreepingPattern extends TabulatedPattern {
+        @Override
+        public String getName() {
+            return "CREEPING";
+        }
+
+        @Override
+        protected double[] build(int count) {
+            double[] table = new double[count * STRIDE];
+            int rows = Math.max(1, (int) Math.round(Math.sqrt(count / 2.0)));
+            int perRow = (count + rows - 1) / rows;
+            int index = 0;
+
+            for (int row = 0; row < rows && index < count; row++) {
+                double u = -1 + (2.0 * row + 1) / rows;
+                double halfWidth = Math.sqrt(1 - u * u);
+                int points = Math.min(perRow, count - index);
+                for (int i = 0; i < points; i++) {
+                    table[index * STRIDE] = u;
+                    table[index * STRIDE + 1] = points == 1 ? 0 : halfWidth * (-1 + 2.0 * i / (points - 1));
+                    index++;
+                }
+            }
+            return table;
+        }
+    }
+}
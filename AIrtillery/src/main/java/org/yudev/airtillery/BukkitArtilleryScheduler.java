@@ -0,0 +1,94 @@
+package org.yudev.airtillery;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitScheduler;
+
+import java.util.List;
+
+/**
+ * Планировщик для обычного сервера: все, кроме асинхронных задач, выполняется в основном потоке
+ */
+public class BukkitArtilleryScheduler implements ArtilleryScheduler {
+    private final ArtilleryPlugin plugin;
+    private final BukkitScheduler scheduler;
+
+    public BukkitArtilleryScheduler(ArtilleryPlugin plugin) {
+        this.plugin = plugin;
+        this.scheduler = plugin.getServer().getScheduler();
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return false;
+    }
+
+    @Override
+    public void run(Location location, Runnable task) {
+        scheduler.runTask(plugin, task);
+    }
+
+    @Override
+    public Task runTimer(Location location, Runnable task, long delayTicks, long periodTicks) {
+        return scheduler.runTaskTimer(plugin, task, delayTicks, periodTicks)::cancel;
+    }
+
+    @Override
+    public void runForEntity(Entity entity, Runnable task, Runnable retired) {
+        scheduler.runTask(plugin, () -> {
+            if (entity.isValid()) {
+                task.run();
+            } else {
+                retired.run();
+            }
+        });
+    }
+
+    @Override
+    public Task runForEntityTimer(Entity entity, Runnable task, Runnable retired, long delayTicks, long periodTicks) {
+        return new BukkitRunnable() {
+            @Override
+            public void run() {
+                if (entity.isValid()) {
+                    task.run();
+                } else {
+                    cancel();
+                    retired.run();
+                }
+            }
+        }.runTaskTimer(plugin, delayTicks, periodTicks)::cancel;
+    }
+
+    @Override
+    public Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        return scheduler.runTaskTimer(plugin, task, delayTicks, periodTicks)::cancel;
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        scheduler.runTaskAsynchronously(plugin, task);
+    }
+
+    @Override
+    public boolean isOwnedByCurrentRegion(Location location) {
+        return plugin.getServer().isPrimaryThread();
+    }
+
+    @Override
+    public boolean isOwnedByCurrentRegion(Entity entity) {
+        return plugin.getServer().isPrimaryThread();
+    }
+
+    @Override
+    public List<Player> getPlayers(World world) {
+        return world.getPlayers();
+    }
+
+    @Override
+    public void cancelTasks() {
+        scheduler.cancelTasks(plugin);
+    }
+}
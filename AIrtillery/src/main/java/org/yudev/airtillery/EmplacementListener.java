@@ -0,0 +1,108 @@
+package org.yudev.airtillery;
+
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.List;
+
+/**
+ * Снятие установок при разрушении блока и их загрузка и выгрузка вместе с чанками.
+ * Блок установки - обычный раздатчик, поэтому поршни его не двигают, а взрывы не разрушают:
+ * иначе вместо артиллерийского предмета выпал бы раздатчик.
+ * Установки, чей блок исчез без события (другой плагин), снимаются при следующем обслуживании
+ */
+public class EmplacementListener implements Listener {
+    private final ArtilleryManager artilleryManager;
+    private final EmplacementManager emplacementManager;
+
+    public EmplacementListener(ArtilleryManager artilleryManager, EmplacementManager emplacementManager) {
+        this.artilleryManager = artilleryManager;
+        this.emplacementManager = emplacementManager;
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        if (event.getBlock().getType() != emplacementManager.getBlockType()) {
+            return;
+        }
+
+        ArtilleryManager.ArtillerySettings settings = emplacementManager.remove(event.getBlock());
+        if (settings == null) {
+            return;
+        }
+
+        // Вместо блока установки возвращается артиллерийский предмет, из которого она поставлена
+        event.setDropItems(false);
+        ItemStack item = artilleryManager.createArtilleryItem(settings);
+        if (item != null) {
+            Location location = event.getBlock().getLocation().add(0.5, 0.5, 0.5);
+            location.getWorld().dropItemNaturally(location, item);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+        if (containsEmplacement(event.getBlocks())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+        if (containsEmplacement(event.getBlocks())) {
+            event.setCancelled(true);
+        }
+    }
+
+    /**
+     * HIGH, а не HIGHEST: на HIGHEST {@link TntExplosionListener} забирает список блоков
+     * в порционное разрушение
+     */
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        protectEmplacements(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        protectEmplacements(event.blockList());
+    }
+
+    private boolean containsEmplacement(List<Block> blocks) {
+        for (Block block : blocks) {
+            if (block.getType() == emplacementManager.getBlockType() && emplacementManager.isEmplacement(block)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void protectEmplacements(List<Block> blocks) {
+        if (emplacementManager.size() == 0) {
+            return;
+        }
+        blocks.removeIf(block -> block.getType() == emplacementManager.getBlockType() &&
+                emplacementManager.isEmplacement(block));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        emplacementManager.load(event.getChunk());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        emplacementManager.unload(event.getChunk());
+    }
+}
@@ -0,0 +1,759 @@
+package org.yudev.airtillery;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Chunk;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.Vector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Автоматические артиллерийские установки: блок, поставленный с артиллерийским предметом,
+ * сам находит цели в радиусе предмета и ведет огонь через общий конвейер обстрела.
+ * Установки хранятся в PersistentDataContainer своего чанка и живут, пока чанк загружен.
+ * <p>
+ * Установки обслуживаются таймерами {@link TimingWheel}: установки одной ячейки сетки срабатывают
+ * в одну фазу периода обслуживания, разные ячейки - в разные, и за тик обслуживается не больше
+ * max-services-per-tick установок. Установка без целей засыпает в своей ячейке; будит ее
+ * проход по игрокам, так что спящие установки ничего не стоят. Поиск целей и снимок их движения
+ * выполняются один раз за тик на ячейку и общие для всех установок в ней
+ */
+public class EmplacementManager {
+    private static final byte FORMAT_VERSION = 1;
+
+    private final ArtilleryPlugin plugin;
+    private final ArtilleryManager artilleryManager;
+    private final TimingWheel timingWheel;
+    private final ArtillerySettingsCodec settingsCodec = new ArtillerySettingsCodec();
+    private final NamespacedKey dataKey;
+
+    private final Material blockType;
+    private final int maxRange;
+    private final int cellSize;
+    private final int cooldownTicks;
+    private final int servicePeriod;
+    private final int wakeInterval;
+    private final int sleepTicks;
+    private final int maxServicesPerTick;
+
+    private final Map<UUID, Map<Long, Emplacement>> blocks = new HashMap<>();
+    private final Map<UUID, Map<Long, List<Emplacement>>> chunks = new HashMap<>();
+    private final Map<UUID, Map<Long, List<Emplacement>>> sleepers = new HashMap<>();
+    private int size = 0;
+
+    private final Map<UUID, Map<Long, CellTargets>> cellTargets = new HashMap<>();
+    private final Map<Integer, Vector> velocities = new HashMap<>();
+    private long currentTick = 0;
+    private int servicedThisTick = 0;
+    private BukkitTask task;
+
+    public EmplacementManager(ArtilleryPlugin plugin, ArtilleryManager artilleryManager, TimingWheel timingWheel) {
+        this.plugin = plugin;
+        this.artilleryManager = artilleryManager;
+        this.timingWheel = timingWheel;
+        this.dataKey = new NamespacedKey(plugin, "emplacements");
+
+        Material configured = Material.matchMaterial(plugin.getConfig().getString("emplacements.block", "DISPENSER"));
+        if (configured == null || !configured.isBlock()) {
+            plugin.getLogger().warning("Unknown emplacements.block, using DISPENSER");
+            configured = Material.DISPENSER;
+        }
+        this.blockType = configured;
+        this.maxRange = Math.max(1, plugin.getConfig().getInt("emplacements.max-range", 128));
+        this.cellSize = Math.max(8, plugin.getConfig().getInt("emplacements.cell-size", 32));
+        this.cooldownTicks = Math.max(1, plugin.getConfig().getInt("emplacements.cooldown-ticks", 100));
+        this.servicePeriod = Math.max(1, plugin.getConfig().getInt("emplacements.service-period", 20));
+        this.wakeInterval = Math.max(1, plugin.getConfig().getInt("emplacements.wake-interval", 10));
+        this.sleepTicks = Math.max(1, plugin.getConfig().getInt("emplacements.sleep-ticks", 200));
+        this.maxServicesPerTick = Math.max(1, plugin.getConfig().getInt("emplacements.max-services-per-tick", 16));
+    }
+
+    public Material getBlockType() {
+        return blockType;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmplacement(Block block) {
+        return get(block) != null;
+    }
+
+    /**
+     * Ставит установку на место блока target от имени игрока. Постановка проходит через
+     * BlockPlaceEvent, чтобы ее могли запретить плагины защиты территорий
+     */
+    public boolean place(Player player, Block target, Block against, ItemStack item,
+                         ArtilleryManager.ArtillerySettings settings) {
+        if (!player.hasPermission("artillery.emplacement")) {
+            player.sendMessage(ChatColor.RED + "У вас нет прав на установку артиллерии");
+            return false;
+        }
+
+        if (!target.isEmpty() || get(target) != null) {
+            player.sendMessage(ChatColor.RED + "Здесь нельзя поставить установку");
+            return false;
+        }
+
+        BlockState replaced = target.getState();
+        target.setType(blockType);
+
+        BlockPlaceEvent placeEvent = new BlockPlaceEvent(target, replaced, against, item, player, true,
+                EquipmentSlot.HAND);
+        plugin.getServer().getPluginManager().callEvent(placeEvent);
+        if (placeEvent.isCancelled() || !placeEvent.canBuild()) {
+            replaced.update(true, false);
+            player.sendMessage(ChatColor.RED + "Здесь нельзя поставить установку");
+            return false;
+        }
+
+        if (player.getGameMode() != GameMode.CREATIVE) {
+            item.setAmount(item.getAmount() - 1);
+        }
+
+        Emplacement emplacement = register(UUID.randomUUID(), player.getUniqueId(), target.getWorld(),
+                target.getX(), target.getY(), target.getZ(), settings);
+        save(target.getChunk());
+        schedule(emplacement, 1);
+
+        player.sendMessage(ChatColor.GREEN + "Установка размещена: дальность " +
+                getRange(emplacement) + " блоков");
+        return true;
+    }
+
+    /**
+     * Убирает установку, чей блок сломан
+     *
+     * @return настройки снятой установки или null, если блок не установка
+     */
+    public ArtilleryManager.ArtillerySettings remove(Block block) {
+        Emplacement emplacement = get(block);
+        if (emplacement == null) {
+            return null;
+        }
+
+        unregister(emplacement);
+        save(block.getChunk());
+        return emplacement.settings;
+    }
+
+    /**
+     * Регистрирует установки из данных загруженного чанка
+     */
+    public void load(Chunk chunk) {
+        byte[] data = chunk.getPersistentDataContainer().get(dataKey, PersistentDataType.BYTE_ARRAY);
+        if (data == null) {
+            return;
+        }
+
+        World world = chunk.getWorld();
+        boolean changed = false;
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readByte() != FORMAT_VERSION) {
+                plugin.getLogger().warning("Unknown emplacement data format in chunk " +
+                        chunk.getX() + "," + chunk.getZ());
+                return;
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int local = in.readUnsignedByte();
+                int y = in.readInt();
+                UUID id = new UUID(in.readLong(), in.readLong());
+                UUID owner = new UUID(in.readLong(), in.readLong());
+                byte[] settingsData = new byte[in.readUnsignedShort()];
+                in.readFully(settingsData);
+
+                int x = (chunk.getX() << 4) | (local >> 4);
+                int z = (chunk.getZ() << 4) | (local & 15);
+                ArtilleryManager.ArtillerySettings settings = settingsCodec.decode(settingsData);
+
+                // Блок могли заменить, пока плагин был выключен
+                if (settings == null || world.getBlockAt(x, y, z).getType() != blockType ||
+                        get(world.getUID(), x, y, z) != null) {
+                    changed = true;
+                    continue;
+                }
+
+                Emplacement emplacement = register(id, owner, world, x, y, z, settings);
+                schedule(emplacement, 1 + i % servicePeriod);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Corrupted emplacement data in chunk " + chunk.getX() + "," + chunk.getZ());
+            return;
+        }
+
+        if (changed) {
+            save(chunk);
+        }
+    }
+
+    /**
+     * Снимает установки выгружаемого чанка; их данные уже записаны в чанк
+     */
+    public void unload(Chunk chunk) {
+        Map<Long, List<Emplacement>> worldChunks = chunks.get(chunk.getWorld().getUID());
+        if (worldChunks == null) {
+            return;
+        }
+
+        List<Emplacement> emplacements = worldChunks.get(chunkKey(chunk.getX(), chunk.getZ()));
+        if (emplacements == null) {
+            return;
+        }
+
+        for (Emplacement emplacement : new ArrayList<>(emplacements)) {
+            unregister(emplacement);
+        }
+    }
+
+    /**
+     * Загружает установки из уже загруженных чанков при включении плагина
+     */
+    public void loadAll() {
+        for (World world : plugin.getServer().getWorlds()) {
+            for (Chunk chunk : world.getLoadedChunks()) {
+                load(chunk);
+            }
+        }
+    }
+
+    public void shutdown() {
+        for (Map<Long, Emplacement> worldBlocks : blocks.values()) {
+            for (Emplacement emplacement : worldBlocks.values()) {
+                emplacement.active = false;
+                if (emplacement.timer != null) {
+                    emplacement.timer.cancel();
+                }
+                artilleryManager.cancelFire(emplacement.id);
+            }
+        }
+        blocks.clear();
+        chunks.clear();
+        sleepers.clear();
+        cellTargets.clear();
+        velocities.clear();
+        size = 0;
+        settingsCodec.clear();
+
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private Emplacement register(UUID id, UUID owner, World world, int x, int y, int z,
+                                 ArtilleryManager.ArtillerySettings settings) {
+        int cellX = Math.floorDiv(x, cellSize);
+        int cellZ = Math.floorDiv(z, cellSize);
+        long cellKey = chunkKey(cellX, cellZ);
+
+        Emplacement emplacement = new Emplacement(id, owner, world, x, y, z, settings, cellKey,
+                Math.floorMod(cellX * 31 + cellZ * 17, servicePeriod));
+        emplacement.serviceAction = () -> service(emplacement);
+
+        UUID worldId = world.getUID();
+        blocks.computeIfAbsent(worldId, key -> new HashMap<>()).put(blockKey(x, y, z), emplacement);
+        chunks.computeIfAbsent(worldId, key -> new HashMap<>())
+                .computeIfAbsent(chunkKey(x >> 4, z >> 4), key -> new ArrayList<>())
+                .add(emplacement);
+        size++;
+
+        if (task == null) {
+            task = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    tick();
+                }
+            }.runTaskTimer(plugin, 1L, 1L);
+        }
+        return emplacement;
+    }
+
+    private void unregister(Emplacement emplacement) {
+        emplacement.active = false;
+        if (emplacement.timer != null) {
+            emplacement.timer.cancel();
+            emplacement.timer = null;
+        }
+        if (emplacement.sleeping) {
+            removeSleeper(emplacement);
+        }
+        artilleryManager.cancelFire(emplacement.id);
+
+        UUID worldId = emplacement.world.getUID();
+        Map<Long, Emplacement> worldBlocks = blocks.get(worldId);
+        worldBlocks.remove(blockKey(emplacement.x, emplacement.y, emplacement.z));
+        if (worldBlocks.isEmpty()) {
+            blocks.remove(worldId);
+        }
+
+        Map<Long, List<Emplacement>> worldChunks = chunks.get(worldId);
+        long chunkKey = chunkKey(emplacement.x >> 4, emplacement.z >> 4);
+        List<Emplacement> chunkEmplacements = worldChunks.get(chunkKey);
+        chunkEmplacements.remove(emplacement);
+        if (chunkEmplacements.isEmpty()) {
+            worldChunks.remove(chunkKey);
+            if (worldChunks.isEmpty()) {
+                chunks.remove(worldId);
+            }
+        }
+        size--;
+    }
+
+    /**
+     * Переписывает данные установок чанка целиком; чанк без установок теряет ключ
+     */
+    private void save(Chunk chunk) {
+        PersistentDataContainer container = chunk.getPersistentDataContainer();
+        Map<Long, List<Emplacement>> worldChunks = chunks.get(chunk.getWorld().getUID());
+        List<Emplacement> emplacements = worldChunks != null
+                ? worldChunks.get(chunkKey(chunk.getX(), chunk.getZ()))
+                : null;
+
+        if (emplacements == null || emplacements.isEmpty()) {
+            container.remove(dataKey);
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * emplacements.size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(emplacements.size());
+
+            for (Emplacement emplacement : emplacements) {
+                byte[] settingsData = settingsCodec.encode(emplacement.id.getLeastSignificantBits(),
+                        emplacement.settings);
+                out.writeByte(((emplacement.x & 15) << 4) | (emplacement.z & 15));
+                out.writeInt(emplacement.y);
+                out.writeLong(emplacement.id.getMostSignificantBits());
+                out.writeLong(emplacement.id.getLeastSignificantBits());
+                out.writeLong(emplacement.owner.getMostSignificantBits());
+                out.writeLong(emplacement.owner.getLeastSignificantBits());
+                out.writeShort(settingsData.length);
+                out.write(settingsData);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode emplacements", e);
+        }
+
+        container.set(dataKey, PersistentDataType.BYTE_ARRAY, bytes.toByteArray());
+    }
+
+    private void tick() {
+        currentTick++;
+        servicedThisTick = 0;
+        cellTargets.clear();
+        velocities.clear();
+
+        if (currentTick % wakeInterval == 0) {
+            wakeSleepers();
+        }
+
+        if (size == 0) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Обслуживание одной установки: проверка блока, выбор целей из общего снимка ячейки и выстрел
+     */
+    private void service(Emplacement emplacement) {
+        emplacement.timer = null;
+        if (!emplacement.active) {
+            return;
+        }
+        if (emplacement.sleeping) {
+            removeSleeper(emplacement);
+        }
+
+        if (servicedThisTick >= maxServicesPerTick) {
+            emplacement.timer = timingWheel.schedule(1, emplacement.serviceAction);
+            return;
+        }
+        servicedThisTick++;
+
+        // Блок мог быть заменен другим плагином без события
+        Block block = emplacement.world.getBlockAt(emplacement.x, emplacement.y, emplacement.z);
+        if (block.getType() != blockType) {
+            unregister(emplacement);
+            save(block.getChunk());
+            return;
+        }
+
+        if (artilleryManager.isFiring(emplacement.id)) {
+            schedule(emplacement, cooldownTicks);
+            return;
+        }
+
+        CellTargets cell = getCellTargets(emplacement);
+        ArtilleryManager.ArtillerySettings settings = emplacement.settings;
+        if (settings.isDebug() && cell.golems == null) {
+            findGolems(cell, emplacement);
+        }
+        Entity[] candidates = settings.isDebug() ? cell.golems : cell.players;
+        Location[] candidateLocations = settings.isDebug() ? cell.golemLocations : cell.playerLocations;
+
+        int maxTargets = artilleryManager.getTargetLimit(settings);
+        Entity[] targets = new Entity[maxTargets];
+        Location[] snapshots = new Location[maxTargets];
+        double[] distances = new double[maxTargets];
+        int found = 0;
+        double range = getRange(emplacement);
+        Location launchLocation = emplacement.launchLocation;
+
+        for (int c = 0; c < candidates.length; c++) {
+            Entity candidate = candidates[c];
+            Location location = candidateLocations[c];
+            if (candidate.getUniqueId().equals(emplacement.owner) ||
+                    !artilleryManager.canReach(launchLocation, location)) {
+                continue;
+            }
+
+            double dx = location.getX() - launchLocation.getX();
+            double dz = location.getZ() - launchLocation.getZ();
+            double distanceSquared = dx * dx + dz * dz;
+            if (distanceSquared > range * range ||
+                    (found == maxTargets && distanceSquared >= distances[found - 1])) {
+                continue;
+            }
+
+            int i = found < maxTargets ? found++ : found - 1;
+            while (i > 0 && distances[i - 1] > distanceSquared) {
+                targets[i] = targets[i - 1];
+                snapshots[i] = snapshots[i - 1];
+                distances[i] = distances[i - 1];
+                i--;
+            }
+            targets[i] = candidate;
+            snapshots[i] = location;
+            distances[i] = distanceSquared;
+        }
+
+        if (found == 0) {
+            sleep(emplacement);
+            return;
+        }
+
+        if (found < maxTargets) {
+            targets = Arrays.copyOf(targets, found);
+            snapshots = Arrays.copyOf(snapshots, found);
+        }
+
+        Vector[] targetVelocities = new Vector[found];
+        for (int i = 0; i < found; i++) {
+            Vector velocity = velocities.get(targets[i].getEntityId());
+            if (velocity == null) {
+                velocity = artilleryManager.estimateTargetVelocity(targets[i]);
+                velocities.put(targets[i].getEntityId(), velocity);
+            }
+            targetVelocities[i] = velocity;
+        }
+
+        artilleryManager.fireFromEmplacement(emplacement, launchLocation, settings,
+                targets, snapshots, targetVelocities);
+        schedule(emplacement, cooldownTicks);
+    }
+
+    /**
+     * Снимок игроков вокруг ячейки установки, общий для всех ее установок в этом тике
+     */
+    private CellTargets getCellTargets(Emplacement emplacement) {
+        Map<Long, CellTargets> worldCells = cellTargets.computeIfAbsent(emplacement.world.getUID(),
+                key -> new HashMap<>());
+        CellTargets cell = worldCells.get(emplacement.cellKey);
+        if (cell != null) {
+            return cell;
+        }
+
+        double centerX = (Math.floorDiv(emplacement.x, cellSize) + 0.5) * cellSize;
+        double centerZ = (Math.floorDiv(emplacement.z, cellSize) + 0.5) * cellSize;
+        double reach = getCellReach();
+
+        List<Entity> players = new ArrayList<>();
+        List<Location> playerLocations = new ArrayList<>();
+        for (Player player : emplacement.world.getPlayers()) {
+            if (!isTargetable(player)) {
+                continue;
+            }
+
+            Location location = player.getLocation();
+            double dx = location.getX() - centerX;
+            double dz = location.getZ() - centerZ;
+            if (dx * dx + dz * dz <= reach * reach) {
+                players.add(player);
+                playerLocations.add(location);
+            }
+        }
+
+        cell = new CellTargets(centerX, centerZ,
+                players.toArray(new Entity[0]), playerLocations.toArray(new Location[0]));
+        worldCells.put(emplacement.cellKey, cell);
+        return cell;
+    }
+
+    /**
+     * Железные големы - цели установок в режиме отладки; ищутся, только если такая установка есть в ячейке
+     */
+    private void findGolems(CellTargets cell, Emplacement emplacement) {
+        double reach = getCellReach();
+        Location center = new Location(emplacement.world, cell.centerX, emplacement.y, cell.centerZ);
+
+        List<Entity> golems = new ArrayList<>();
+        List<Location> golemLocations = new ArrayList<>();
+        for (Entity entity : emplacement.world.getNearbyEntities(center, reach, reach, reach,
+                entity -> entity.getType() == EntityType.IRON_GOLEM)) {
+            golems.add(entity);
+            golemLocations.add(entity.getLocation());
+        }
+
+        cell.golems = golems.toArray(new Entity[0]);
+        cell.golemLocations = golemLocations.toArray(new Location[0]);
+    }
+
+    /**
+     * Радиус поиска вокруг центра ячейки, покрывающий дальность любой ее установки
+     */
+    private double getCellReach() {
+        return maxRange + cellSize * 0.75;
+    }
+
+    private static boolean isTargetable(Player player) {
+        return player.isValid() && !player.isDead() &&
+                (player.getGameMode() == GameMode.SURVIVAL || player.getGameMode() == GameMode.ADVENTURE);
+    }
+
+    /**
+     * Установка без целей перестает обслуживаться, пока рядом не появится игрок. Установки
+     * в режиме отладки стреляют по железным големам, которых проход по игрокам не видит,
+     * поэтому они дополнительно проверяются раз в sleep-ticks
+     */
+    private void sleep(Emplacement emplacement) {
+        emplacement.sleeping = true;
+        List<Emplacement> cell = sleepers.computeIfAbsent(emplacement.world.getUID(), key -> new HashMap<>())
+                .computeIfAbsent(emplacement.cellKey, key -> new ArrayList<>());
+        emplacement.sleepIndex = cell.size();
+        cell.add(emplacement);
+
+        if (emplacement.settings.isDebug()) {
+            schedule(emplacement, sleepTicks);
+        }
+    }
+
+    private void wake(Emplacement emplacement) {
+        removeSleeper(emplacement);
+        if (emplacement.timer != null) {
+            emplacement.timer.cancel();
+        }
+        schedule(emplacement, 1);
+    }
+
+    private void removeSleeper(Emplacement emplacement) {
+        UUID worldId = emplacement.world.getUID();
+        Map<Long, List<Emplacement>> worldSleepers = sleepers.get(worldId);
+        List<Emplacement> cell = worldSleepers.get(emplacement.cellKey);
+
+        // Удаление перестановкой последней установки на освободившееся место
+        Emplacement last = cell.remove(cell.size() - 1);
+        if (last != emplacement) {
+            cell.set(emplacement.sleepIndex, last);
+            last.sleepIndex = emplacement.sleepIndex;
+        }
+        emplacement.sleeping = false;
+
+        if (cell.isEmpty()) {
+            worldSleepers.remove(emplacement.cellKey);
+            if (worldSleepers.isEmpty()) {
+                sleepers.remove(worldId);
+            }
+        }
+    }
+
+    /**
+     * Проход пробуждения идет по игрокам: для каждого проверяются только ячейки в пределах
+     * максимальной дальности, так что его стоимость не зависит от числа спящих установок
+     */
+    private void wakeSleepers() {
+        if (sleepers.isEmpty()) {
+            return;
+        }
+
+        for (World world : plugin.getServer().getWorlds()) {
+            Map<Long, List<Emplacement>> worldSleepers = sleepers.get(world.getUID());
+            if (worldSleepers == null) {
+                continue;
+            }
+
+            for (Player player : world.getPlayers()) {
+                if (!isTargetable(player)) {
+                    continue;
+                }
+
+                Location location = player.getLocation();
+                int minCellX = Math.floorDiv((int) Math.floor(location.getX()) - maxRange, cellSize);
+                int maxCellX = Math.floorDiv((int) Math.floor(location.getX()) + maxRange, cellSize);
+                int minCellZ = Math.floorDiv((int) Math.floor(location.getZ()) - maxRange, cellSize);
+                int maxCellZ = Math.floorDiv((int) Math.floor(location.getZ()) + maxRange, cellSize);
+
+                for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                    for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                        List<Emplacement> cell = worldSleepers.get(chunkKey(cellX, cellZ));
+                        if (cell != null) {
+                            wakeInRange(cell, player, location);
+                        }
+                    }
+                }
+
+                if (worldSleepers.isEmpty()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void wakeInRange(List<Emplacement> cell, Player player, Location location) {
+        for (int i = cell.size() - 1; i >= 0; i--) {
+            Emplacement emplacement = cell.get(i);
+            if (player.getUniqueId().equals(emplacement.owner)) {
+                continue;
+            }
+
+            double dx = location.getX() - emplacement.launchLocation.getX();
+            double dz = location.getZ() - emplacement.launchLocation.getZ();
+            double range = getRange(emplacement);
+            if (dx * dx + dz * dz <= range * range) {
+                wake(emplacement);
+            }
+        }
+    }
+
+    /**
+     * Ставит обслуживание не раньше чем через delayTicks, в ближайший тик фазы ячейки
+     */
+    private void schedule(Emplacement emplacement, long delayTicks) {
+        long due = currentTick + delayTicks;
+        due += Math.floorMod(emplacement.phase - due, servicePeriod);
+        emplacement.timer = timingWheel.schedule(due - currentTick, emplacement.serviceAction);
+    }
+
+    private int getRange(Emplacement emplacement) {
+        return Math.min(emplacement.settings.getMaxRange(), maxRange);
+    }
+
+    private Emplacement get(Block block) {
+        return get(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ());
+    }
+
+    private Emplacement get(UUID worldId, int x, int y, int z) {
+        Map<Long, Emplacement> worldBlocks = blocks.get(worldId);
+        return worldBlocks != null ? worldBlocks.get(blockKey(x, y, z)) : null;
+    }
+
+    private static long blockKey(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | (y & 0xFFF);
+    }
+
+    private static long chunkKey(int x, int z) {
+        return (long) x << 32 | (z & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Возможные цели вокруг ячейки и их положения на момент снимка, в параллельных массивах
+     */
+    private static final class CellTargets {
+        private final double centerX;
+        private final double centerZ;
+        private final Entity[] players;
+        private final Location[] playerLocations;
+        private Entity[] golems;
+        private Location[] golemLocations;
+
+        CellTargets(double centerX, double centerZ, Entity[] players, Location[] playerLocations) {
+            this.centerX = centerX;
+            this.centerZ = centerZ;
+            this.players = players;
+            this.playerLocations = playerLocations;
+        }
+    }
+
+    private static final class Emplacement implements ArtilleryShooter {
+        private final UUID id;
+        private final UUID owner;
+        private final World world;
+        private final int x;
+        private final int y;
+        private final int z;
+        private final ArtilleryManager.ArtillerySettings settings;
+        private final Location launchLocation;
+        private final long cellKey;
+        private final int phase;
+
+        private Runnable serviceAction;
+        private TimingWheel.Timeout timer;
+        private boolean active = true;
+        private boolean sleeping = false;
+        private int sleepIndex;
+
+        Emplacement(UUID id, UUID owner, World world, int x, int y, int z,
+                    ArtilleryManager.ArtillerySettings settings, long cellKey, int phase) {
+            this.id = id;
+            this.owner = owner;
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.settings = settings;
+            this.launchLocation = new Location(world, x + 0.5, y + 1.5, z + 0.5);
+            this.cellKey = cellKey;
+            this.phase = phase;
+        }
+
+        @Override
+        public UUID getUniqueId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return "emplacement at " + x + "," + y + "," + z;
+        }
+
+        @Override
+        public boolean isActive() {
+            return active;
+        }
+
+        @Override
+        public void sendMessage(String message) {
+        }
+    }
+}
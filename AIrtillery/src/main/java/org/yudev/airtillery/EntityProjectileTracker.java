@@ -0,0 +1,210 @@
+package org.yudev.airtillery;
+
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.entity.Arrow;
+import org.bukkit.entity.Entity;
+import org.bukkit.util.Vector;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Реестр летящих снарядов для Folia. Снаряд может перелететь в регион другого потока, поэтому
+ * состояние каждого снаряда хранится в его задаче планировщика сущности: Folia переносит задачу
+ * вместе со снарядом, и события снаряда приходят в тот же поток. Общая только таблица
+ * идентификаторов, по которой события узнают артиллерийские снаряды
+ */
+public class EntityProjectileTracker implements ProjectileRegistry {
+    private static final int TRACKING_DELAY_TICKS = 5;
+    private static final int GROUNDED_LIFETIME_TICKS = 60;
+    private static final int VISUALIZATION_INTERVAL = 4;
+
+    private final ArtilleryPlugin plugin;
+    private final ArtilleryScheduler scheduler;
+    private final InFlightBudget budget;
+    private final Function<Location, ArtilleryRegion> regions;
+    private final BiConsumer<Entity, String> landingHandler;
+    private final int sweepInterval;
+
+    private final Map<Integer, TrackedProjectile> projectiles = new ConcurrentHashMap<>();
+
+    public EntityProjectileTracker(ArtilleryPlugin plugin, ArtilleryScheduler scheduler, InFlightBudget budget,
+                                   Function<Location, ArtilleryRegion> regions,
+                                   BiConsumer<Entity, String> landingHandler) {
+        this.plugin = plugin;
+        this.scheduler = scheduler;
+        this.budget = budget;
+        this.regions = regions;
+        this.landingHandler = landingHandler;
+        this.sweepInterval = Math.max(1, plugin.getConfig().getInt("projectile-tracker.sweep-interval", 10));
+    }
+
+    @Override
+    public void track(Entity projectile, String projectileType, UUID owner) {
+        TrackedProjectile tracked = new TrackedProjectile(projectile, projectileType, owner,
+                projectile.getWorld().getUID());
+        budget.acquire(owner, tracked.world);
+        projectiles.put(projectile.getEntityId(), tracked);
+        tracked.task = scheduler.runForEntityTimer(projectile, tracked::tick, () -> remove(tracked), 1L, 1L);
+    }
+
+    @Override
+    public int size() {
+        return projectiles.size();
+    }
+
+    @Override
+    public boolean contains(Entity projectile) {
+        return projectiles.containsKey(projectile.getEntityId());
+    }
+
+    @Override
+    public boolean land(Entity projectile) {
+        TrackedProjectile tracked = projectiles.get(projectile.getEntityId());
+        if (tracked == null || tracked.groundedAt >= 0) {
+            return false;
+        }
+
+        tracked.markGrounded("event");
+        return true;
+    }
+
+    @Override
+    public void untrack(Entity projectile) {
+        TrackedProjectile tracked = projectiles.get(projectile.getEntityId());
+        if (tracked != null) {
+            remove(tracked);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (TrackedProjectile tracked : projectiles.values()) {
+            if (tracked.task != null) {
+                tracked.task.cancel();
+            }
+        }
+        projectiles.clear();
+        budget.clear();
+    }
+
+    private void remove(TrackedProjectile tracked) {
+        if (!projectiles.remove(tracked.entity.getEntityId(), tracked)) {
+            return;
+        }
+
+        if (tracked.task != null) {
+            tracked.task.cancel();
+        }
+        budget.release(tracked.owner, tracked.world);
+    }
+
+    private static boolean isRemovedAfterLanding(String projectileType) {
+        return projectileType.equals("ARROW") ||
+                projectileType.equals("FLAMING_ARROW") ||
+                projectileType.equals("TRIDENT");
+    }
+
+    /**
+     * Состояние одного снаряда; читается и меняется только в потоке региона, где снаряд сейчас
+     */
+    private final class TrackedProjectile {
+        private final Entity entity;
+        private final String projectileType;
+        private final UUID owner;
+        private final UUID world;
+        private ArtilleryScheduler.Task task;
+        private long age = 0;
+        private long unchangedSince = 0;
+        private long groundedAt = -1;
+        private double lastVelocityX;
+        private double lastVelocityY;
+        private double lastVelocityZ;
+
+        TrackedProjectile(Entity entity, String projectileType, UUID owner, UUID world) {
+            this.entity = entity;
+            this.projectileType = projectileType;
+            this.owner = owner;
+            this.world = world;
+
+            Vector velocity = entity.getVelocity();
+            this.lastVelocityX = velocity.getX();
+            this.lastVelocityY = velocity.getY();
+            this.lastVelocityZ = velocity.getZ();
+        }
+
+        void tick() {
+            age++;
+
+            if (!entity.isValid() || entity.isDead()) {
+                remove(this);
+                return;
+            }
+
+            if (groundedAt >= 0) {
+                if (isRemovedAfterLanding(projectileType) && age - groundedAt >= GROUNDED_LIFETIME_TICKS) {
+                    entity.remove();
+                    remove(this);
+
+                    if (plugin.getConfig().getBoolean("debug-mode", false)) {
+                        plugin.getLogger().info("Removed grounded projectile: " + projectileType);
+                    }
+                }
+                return;
+            }
+
+            if (age % VISUALIZATION_INTERVAL == 0 && projectileType.equalsIgnoreCase("TNT") &&
+                    ThreadLocalRandom.current().nextDouble() > 0.7) {
+                Location location = entity.getLocation();
+                regions.apply(location).getParticleService()
+                        .spawn(Particle.SMOKE_NORMAL, location, 1, 0.05, 0.05, 0.05, 0.01);
+            }
+
+            if (age >= TRACKING_DELAY_TICKS && age % sweepInterval == 0) {
+                checkLanding();
+            }
+        }
+
+        /**
+         * Страховочная проверка приземления, для которого не пришло событие
+         */
+        private void checkLanding() {
+            Vector velocity = entity.getVelocity();
+
+            double dx = velocity.getX() - lastVelocityX;
+            double dy = velocity.getY() - lastVelocityY;
+            double dz = velocity.getZ() - lastVelocityZ;
+            if (dx * dx + dy * dy + dz * dz >= 0.001 * 0.001) {
+                unchangedSince = age;
+            }
+
+            lastVelocityX = velocity.getX();
+            lastVelocityY = velocity.getY();
+            lastVelocityZ = velocity.getZ();
+
+            boolean velocityNearZero = velocity.lengthSquared() < 0.01;
+            boolean velocityUnchanged = age - unchangedSince > 5;
+            boolean isInBlock = entity instanceof Arrow && ((Arrow) entity).isInBlock();
+
+            if (velocityNearZero || velocityUnchanged || isInBlock) {
+                markGrounded("sweep: velocityNearZero=" + velocityNearZero +
+                        ", velocityUnchanged=" + velocityUnchanged +
+                        ", isInBlock=" + isInBlock);
+            }
+        }
+
+        void markGrounded(String reason) {
+            groundedAt = age;
+            landingHandler.accept(entity, projectileType);
+
+            if (plugin.getConfig().getBoolean("debug-mode", false)) {
+                plugin.getLogger().info("Projectile grounded: " + projectileType + " (" + reason + ")");
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.yudev.airtillery;
+
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.entity.TNTPrimed;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Объединяет взрывы артиллерийского TNT. Упавший TNT не взрывается сам, а ставится в очередь;
+ * в следующем тике все взрывы, собранные за тик, группируются по близости, и каждая группа
+ * становится одним взрывом в центре группы. Так блоки, освещение и физика обсчитываются
+ * один раз на группу, а не на каждый TNT
+ */
+public class ExplosionCoordinator {
+    private final ArtilleryPlugin plugin;
+    private final TimingWheel timingWheel;
+    private final ParticleService particleService;
+    private final AsyncExplosionService asyncExplosions;
+    private final double mergeRadius;
+    private final float powerPerTnt;
+    private final float maxPower;
+    private final boolean setFire;
+
+    private World[] worlds = new World[64];
+    private double[] xs = new double[64];
+    private double[] ys = new double[64];
+    private double[] zs = new double[64];
+    private int size = 0;
+    private TimingWheel.Timeout flush;
+
+    private final Map<Long, Integer> cellGroups = new HashMap<>();
+    private int[] groupCounts = new int[64];
+    private double[] groupX = new double[64];
+    private double[] groupY = new double[64];
+    private double[] groupZ = new double[64];
+    private World[] groupWorlds = new World[64];
+    private int[] seeds = new int[64];
+
+    public ExplosionCoordinator(ArtilleryPlugin plugin, TimingWheel timingWheel, ParticleService particleService,
+                                AsyncExplosionService asyncExplosions) {
+        this.plugin = plugin;
+        this.timingWheel = timingWheel;
+        this.particleService = particleService;
+        this.asyncExplosions = asyncExplosions;
+        this.mergeRadius = Math.max(0.5, plugin.getConfig().getDouble("explosion-coordinator.merge-radius", 4.0));
+        this.powerPerTnt = (float) plugin.getConfig().getDouble("explosion-coordinator.power-per-tnt", 4.0);
+        this.maxPower = (float) plugin.getConfig().getDouble("explosion-coordinator.max-power", 8.0);
+        this.setFire = plugin.getConfig().getBoolean("explosion-coordinator.set-fire", false);
+    }
+
+    /**
+     * Убирает TNT и ставит его взрыв в очередь текущего тика
+     */
+    public void detonate(TNTPrimed tnt) {
+        if (size == worlds.length) {
+            int capacity = size * 2;
+            worlds = Arrays.copyOf(worlds, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+        }
+
+        Location location = tnt.getLocation();
+        worlds[size] = location.getWorld();
+        xs[size] = location.getX();
+        ys[size] = location.getY();
+        zs[size] = location.getZ();
+        size++;
+
+        tnt.remove();
+
+        if (flush == null) {
+            flush = timingWheel.schedule(1, this::flush);
+        }
+    }
+
+    public int getPendingCount() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(worlds, 0, size, null);
+        size = 0;
+        if (flush != null) {
+            flush.cancel();
+            flush = null;
+        }
+    }
+
+    private void flush() {
+        flush = null;
+        int groups = group();
+
+        for (int g = 0; g < groups; g++) {
+            int count = groupCounts[g];
+            Location center = new Location(groupWorlds[g],
+                    groupX[g] / count, groupY[g] / count, groupZ[g] / count);
+
+            // Мощность растет как кубический корень числа зарядов: объем воронки пропорционален их сумме
+            float power = Math.min(maxPower, (float) (powerPerTnt * Math.cbrt(count)));
+            if (asyncExplosions != null && !setFire) {
+                asyncExplosions.explode(center, power);
+            } else {
+                center.getWorld().createExplosion(center, power, setFire, true);
+            }
+
+            particleService.spawn(Particle.EXPLOSION_HUGE, center, 1, 0, 0, 0, 0);
+        }
+
+        if (plugin.getConfig().getBoolean("debug-mode", false)) {
+            plugin.getLogger().info("Coalesced " + size + " artillery TNT detonations into " + groups + " explosions");
+        }
+
+        Arrays.fill(worlds, 0, size, null);
+        Arrays.fill(groupWorlds, 0, groups, null);
+        size = 0;
+    }
+
+    /**
+     * Жадная группировка через сетку с шагом mergeRadius: взрыв присоединяется к первой группе
+     * из соседних ячеек, чей первый взрыв ближе mergeRadius
+     *
+     * @return число групп
+     */
+    private int group() {
+        cellGroups.clear();
+        if (groupCounts.length < size) {
+            groupCounts = new int[size];
+            groupX = new double[size];
+            groupY = new double[size];
+            groupZ = new double[size];
+            groupWorlds = new World[size];
+            seeds = new int[size];
+        }
+
+        double radiusSquared = mergeRadius * mergeRadius;
+        int groups = 0;
+
+        for (int i = 0; i < size; i++) {
+            int cellX = (int) Math.floor(xs[i] / mergeRadius);
+            int cellY = (int) Math.floor(ys[i] / mergeRadius);
+            int cellZ = (int) Math.floor(zs[i] / mergeRadius);
+            int group = -1;
+
+            for (int dx = -1; dx <= 1 && group < 0; dx++) {
+                for (int dy = -1; dy <= 1 && group < 0; dy++) {
+                    for (int dz = -1; dz <= 1 && group < 0; dz++) {
+                        Integer candidate = cellGroups.get(cellKey(cellX + dx, cellY + dy, cellZ + dz));
+                        if (candidate != null && groupWorlds[candidate] == worlds[i] &&
+                                distanceSquaredToSeed(candidate, i) <= radiusSquared) {
+                            group = candidate;
+                        }
+                    }
+                }
+            }
+
+            if (group < 0) {
+                group = groups++;
+                groupCounts[group] = 0;
+                groupX[group] = 0;
+                groupY[group] = 0;
+                groupZ[group] = 0;
+                groupWorlds[group] = worlds[i];
+                seeds[group] = i;
+                cellGroups.putIfAbsent(cellKey(cellX, cellY, cellZ), group);
+            }
+
+            groupCounts[group]++;
+            groupX[group] += xs[i];
+            groupY[group] += ys[i];
+            groupZ[group] += zs[i];
+        }
+
+        return groups;
+    }
+
+    private double distanceSquaredToSeed(int group, int i) {
+        int seed = seeds[group];
+        double dx = xs[seed] - xs[i];
+        double dy = ys[seed] - ys[i];
+        double dz = zs[seed] - zs[i];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static long cellKey(int x, int y, int z) {
+        return ((long) x & 0x1FFFFF) << 42 | ((long) y & 0x1FFFFF) << 21 | ((long) z & 0x1FFFFF);
+    }
+}
@@ -0,0 +1,228 @@
+package org.yudev.airtillery;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Планировщик для Folia: задачи у точек идут через планировщик регионов, задачи снарядов
+ * и целей - через планировщик сущности, таймеры без привязки к месту - через глобальный регион.
+ * Плагин собирается под Spigot API, где этих планировщиков нет, поэтому методы Folia
+ * находятся через отражение один раз при запуске
+ */
+public class FoliaArtilleryScheduler implements ArtilleryScheduler {
+    private static final String SCHEDULER_PACKAGE = "io.papermc.paper.threadedregions.scheduler.";
+    private static final Task NO_TASK = () -> { };
+
+    private final ArtilleryPlugin plugin;
+    private final Object regionScheduler;
+    private final Object globalScheduler;
+    private final Object asyncScheduler;
+
+    private final MethodHandle regionExecute;
+    private final MethodHandle regionRunAtFixedRate;
+    private final MethodHandle globalRunAtFixedRate;
+    private final MethodHandle globalCancelTasks;
+    private final MethodHandle asyncRunNow;
+    private final MethodHandle asyncCancelTasks;
+    private final MethodHandle entityGetScheduler;
+    private final MethodHandle entityExecute;
+    private final MethodHandle entityRunAtFixedRate;
+    private final MethodHandle taskCancel;
+    private final MethodHandle ownsLocation;
+    private final MethodHandle ownsEntity;
+
+    static boolean isSupported() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    public FoliaArtilleryScheduler(ArtilleryPlugin plugin) throws ReflectiveOperationException {
+        this.plugin = plugin;
+
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        Class<?> regionType = Class.forName(SCHEDULER_PACKAGE + "RegionScheduler");
+        Class<?> globalType = Class.forName(SCHEDULER_PACKAGE + "GlobalRegionScheduler");
+        Class<?> asyncType = Class.forName(SCHEDULER_PACKAGE + "AsyncScheduler");
+        Class<?> entityType = Class.forName(SCHEDULER_PACKAGE + "EntityScheduler");
+        Class<?> taskType = Class.forName(SCHEDULER_PACKAGE + "ScheduledTask");
+
+        this.regionScheduler = Bukkit.class.getMethod("getRegionScheduler").invoke(null);
+        this.globalScheduler = Bukkit.class.getMethod("getGlobalRegionScheduler").invoke(null);
+        this.asyncScheduler = Bukkit.class.getMethod("getAsyncScheduler").invoke(null);
+
+        this.regionExecute = lookup.unreflect(regionType.getMethod("execute",
+                Plugin.class, Location.class, Runnable.class));
+        this.regionRunAtFixedRate = lookup.unreflect(regionType.getMethod("runAtFixedRate",
+                Plugin.class, Location.class, Consumer.class, long.class, long.class));
+        this.globalRunAtFixedRate = lookup.unreflect(globalType.getMethod("runAtFixedRate",
+                Plugin.class, Consumer.class, long.class, long.class));
+        this.globalCancelTasks = lookup.unreflect(globalType.getMethod("cancelTasks", Plugin.class));
+        this.asyncRunNow = lookup.unreflect(asyncType.getMethod("runNow", Plugin.class, Consumer.class));
+        this.asyncCancelTasks = lookup.unreflect(asyncType.getMethod("cancelTasks", Plugin.class));
+        this.entityGetScheduler = lookup.unreflect(Entity.class.getMethod("getScheduler"));
+        this.entityExecute = lookup.unreflect(entityType.getMethod("execute",
+                Plugin.class, Runnable.class, Runnable.class, long.class));
+        this.entityRunAtFixedRate = lookup.unreflect(entityType.getMethod("runAtFixedRate",
+                Plugin.class, Consumer.class, Runnable.class, long.class, long.class));
+        this.taskCancel = lookup.unreflect(taskType.getMethod("cancel"));
+        this.ownsLocation = lookup.unreflect(Bukkit.class.getMethod("isOwnedByCurrentRegion", Location.class));
+        this.ownsEntity = lookup.unreflect(Bukkit.class.getMethod("isOwnedByCurrentRegion", Entity.class));
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return true;
+    }
+
+    @Override
+    public void run(Location location, Runnable task) {
+        try {
+            regionExecute.invoke(regionScheduler, plugin, location, task);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public Task runTimer(Location location, Runnable task, long delayTicks, long periodTicks) {
+        Consumer<Object> consumer = scheduled -> task.run();
+        try {
+            return wrap(regionRunAtFixedRate.invoke(regionScheduler, plugin, location, consumer,
+                    Math.max(1, delayTicks), periodTicks));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public void runForEntity(Entity entity, Runnable task, Runnable retired) {
+        boolean scheduled;
+        try {
+            scheduled = (boolean) entityExecute.invoke(entityGetScheduler.invoke(entity), plugin, task, retired, 1L);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+
+        if (!scheduled) {
+            retired.run();
+        }
+    }
+
+    /**
+     * Если сущность уже удалена, задача не ставится, а retired выполняется сразу
+     */
+    @Override
+    public Task runForEntityTimer(Entity entity, Runnable task, Runnable retired, long delayTicks, long periodTicks) {
+        Consumer<Object> consumer = scheduled -> task.run();
+        Object scheduled;
+        try {
+            scheduled = entityRunAtFixedRate.invoke(entityGetScheduler.invoke(entity), plugin, consumer, retired,
+                    Math.max(1, delayTicks), periodTicks);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+
+        if (scheduled == null) {
+            retired.run();
+        }
+        return wrap(scheduled);
+    }
+
+    @Override
+    public Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        Consumer<Object> consumer = scheduled -> task.run();
+        try {
+            return wrap(globalRunAtFixedRate.invoke(globalScheduler, plugin, consumer,
+                    Math.max(1, delayTicks), periodTicks));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        Consumer<Object> consumer = scheduled -> task.run();
+        try {
+            asyncRunNow.invoke(asyncScheduler, plugin, consumer);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public boolean isOwnedByCurrentRegion(Location location) {
+        try {
+            return (boolean) ownsLocation.invoke(location);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public boolean isOwnedByCurrentRegion(Entity entity) {
+        try {
+            return (boolean) ownsEntity.invoke(entity);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public List<Player> getPlayers(World world) {
+        List<Player> players = new ArrayList<>();
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            if (isOwnedByCurrentRegion(player) && player.getWorld().equals(world)) {
+                players.add(player);
+            }
+        }
+        return players;
+    }
+
+    /**
+     * Задачи регионов и сущностей Folia снимает с выключенного плагина сама
+     */
+    @Override
+    public void cancelTasks() {
+        try {
+            globalCancelTasks.invoke(globalScheduler, plugin);
+            asyncCancelTasks.invoke(asyncScheduler, plugin);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    private Task wrap(Object scheduled) {
+        if (scheduled == null) {
+            return NO_TASK;
+        }
+
+        return () -> {
+            try {
+                taskCancel.invoke(scheduled);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return e instanceof RuntimeException ? (RuntimeException) e : new IllegalStateException(e);
+    }
+}
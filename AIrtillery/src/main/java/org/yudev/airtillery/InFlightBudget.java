@@ -0,0 +1,198 @@
+package org.yudev.airtillery;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Ограничение числа артиллерийских снарядов, одновременно находящихся в полете:
+ * на весь сервер и, если заданы, на игрока и на мир. Лимит 0 означает отсутствие ограничения.
+ * Снаряды, ждущие запуска в очередях залпов, резервируются здесь же. Бюджет общий для всех
+ * регионов Folia, поэтому все методы синхронизированы
+ */
+public class InFlightBudget {
+
+    /**
+     * Что делать с залпом, который не помещается в лимит
+     */
+    public enum Policy {
+        QUEUE,
+        SHRINK,
+        REJECT
+    }
+
+    private final int maxGlobal;
+    private final int maxPerPlayer;
+    private final int maxPerWorld;
+    private final Policy policy;
+
+    private int inFlight = 0;
+    private final Map<UUID, Integer> inFlightByPlayer = new HashMap<>();
+    private final Map<UUID, Integer> inFlightByWorld = new HashMap<>();
+
+    private int pending = 0;
+    private final Map<UUID, Integer> pendingByPlayer = new HashMap<>();
+    private final Map<UUID, Integer> pendingByWorld = new HashMap<>();
+
+    private long rejectedVolleys = 0;
+    private long shrunkProjectiles = 0;
+    private long queuedVolleys = 0;
+
+    public InFlightBudget(ArtilleryPlugin plugin) {
+        this.maxGlobal = plugin.getConfig().getInt("in-flight-budget.max-global", 500);
+        this.maxPerPlayer = plugin.getConfig().getInt("in-flight-budget.max-per-player", 150);
+        this.maxPerWorld = plugin.getConfig().getInt("in-flight-budget.max-per-world", 0);
+
+        Policy configured;
+        try {
+            configured = Policy.valueOf(plugin.getConfig().getString("in-flight-budget.policy", "SHRINK").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Unknown in-flight-budget.policy, using SHRINK");
+            configured = Policy.SHRINK;
+        }
+        this.policy = configured;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Сколько еще снарядов помещается в лимиты с учетом уже стоящих в очереди
+     */
+    public synchronized int available(UUID player, UUID world) {
+        int available = remaining(maxGlobal, inFlight + pending);
+        available = Math.min(available, remaining(maxPerPlayer,
+                count(inFlightByPlayer, player) + count(pendingByPlayer, player)));
+        return Math.min(available, remaining(maxPerWorld,
+                count(inFlightByWorld, world) + count(pendingByWorld, world)));
+    }
+
+    /**
+     * Проверяет залп по лимитам и резервирует место под допущенные снаряды одним действием,
+     * чтобы залпы, допускаемые одновременно из разных регионов, не заняли одно и то же место.
+     * Резерв снимается по мере запуска снарядов или при отмене залпа через {@link #unreserve}
+     *
+     * @return сколько снарядов было свободно до резервирования
+     */
+    public synchronized int admit(UUID player, UUID world, int requested) {
+        int available = available(player, world);
+        int admitted = admitted(available, requested);
+        if (admitted > 0) {
+            reserve(player, world, admitted);
+        }
+        return available;
+    }
+
+    /**
+     * Сколько снарядов залпа допускается политикой при таком свободном месте
+     */
+    public int admitted(int available, int requested) {
+        if (available >= requested || policy == Policy.QUEUE) {
+            return requested;
+        }
+        return policy == Policy.SHRINK ? available : 0;
+    }
+
+    /**
+     * Есть ли место в полете без учета очередей: проверка перед запуском снаряда из очереди
+     */
+    public synchronized boolean hasCapacity(UUID player, UUID world) {
+        return remaining(maxGlobal, inFlight) > 0 &&
+                remaining(maxPerPlayer, count(inFlightByPlayer, player)) > 0 &&
+                remaining(maxPerWorld, count(inFlightByWorld, world)) > 0;
+    }
+
+    public synchronized void acquire(UUID player, UUID world) {
+        inFlight++;
+        inFlightByPlayer.merge(player, 1, Integer::sum);
+        inFlightByWorld.merge(world, 1, Integer::sum);
+    }
+
+    public synchronized void release(UUID player, UUID world) {
+        inFlight--;
+        decrement(inFlightByPlayer, player, 1);
+        decrement(inFlightByWorld, world, 1);
+    }
+
+    /**
+     * Резервирует место под снаряды допущенного, но еще не выпущенного залпа
+     */
+    public synchronized void reserve(UUID player, UUID world, int projectiles) {
+        pending += projectiles;
+        pendingByPlayer.merge(player, projectiles, Integer::sum);
+        pendingByWorld.merge(world, projectiles, Integer::sum);
+    }
+
+    public synchronized void unreserve(UUID player, UUID world, int projectiles) {
+        pending = Math.max(0, pending - projectiles);
+        decrement(pendingByPlayer, player, projectiles);
+        decrement(pendingByWorld, world, projectiles);
+    }
+
+    public synchronized void clear() {
+        inFlight = 0;
+        inFlightByPlayer.clear();
+        inFlightByWorld.clear();
+        pending = 0;
+        pendingByPlayer.clear();
+        pendingByWorld.clear();
+    }
+
+    public synchronized void recordRejected() {
+        rejectedVolleys++;
+    }
+
+    public synchronized void recordShrunk(int projectiles) {
+        shrunkProjectiles += projectiles;
+    }
+
+    public synchronized void recordQueued() {
+        queuedVolleys++;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Число снарядов, ожидающих запуска во всех очередях
+     */
+    public synchronized int getPending() {
+        return pending;
+    }
+
+    public synchronized int getPending(UUID player) {
+        return count(pendingByPlayer, player);
+    }
+
+    public synchronized long getRejectedVolleys() {
+        return rejectedVolleys;
+    }
+
+    public synchronized long getShrunkProjectiles() {
+        return shrunkProjectiles;
+    }
+
+    public synchronized long getQueuedVolleys() {
+        return queuedVolleys;
+    }
+
+    private static int remaining(int limit, int used) {
+        return limit > 0 ? Math.max(0, limit - used) : Integer.MAX_VALUE;
+    }
+
+    private static int count(Map<UUID, Integer> counts, UUID key) {
+        Integer value = counts.get(key);
+        return value != null ? value : 0;
+    }
+
+    private static void decrement(Map<UUID, Integer> counts, UUID key, int amount) {
+        Integer value = counts.get(key);
+        if (value == null || value <= amount) {
+            counts.remove(key);
+        } else {
+            counts.put(key, value - amount);
+        }
+    }
+}
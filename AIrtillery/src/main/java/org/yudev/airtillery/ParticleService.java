@@ -0,0 +1,119 @@
+package org.yudev.airtillery;
+
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Отправляет частицы артиллерии только игрокам поблизости. Число частиц уменьшается
+ * с расстоянием до зрителя, а общее число отправленных за тик частиц ограничено бюджетом;
+ * все, что не уложилось в бюджет, отбрасывается. Бюджет свой у каждого {@link ArtilleryRegion}
+ * и сбрасывается его таймером; на Folia зрителями считаются только игроки того же региона
+ */
+public class ParticleService {
+    private final ArtilleryScheduler scheduler;
+    private final int budgetPerTick;
+    private final double viewDistanceSquared;
+    private final double fullDetailDistanceSquared;
+    private final double halfDetailDistanceSquared;
+    private final Random random = new Random();
+
+    private final Map<World, List<Player>> viewers = new HashMap<>();
+    private final Location viewerLocation = new Location(null, 0, 0, 0);
+    private int used = 0;
+    private long dropped = 0;
+
+    public ParticleService(ArtilleryPlugin plugin, ArtilleryScheduler scheduler) {
+        this.scheduler = scheduler;
+        this.budgetPerTick = plugin.getConfig().getInt("particles.budget-per-tick", 2000);
+        this.viewDistanceSquared = square(plugin.getConfig().getDouble("particles.view-distance", 96));
+        this.fullDetailDistanceSquared = square(plugin.getConfig().getDouble("particles.full-detail-distance", 32));
+        this.halfDetailDistanceSquared = square(plugin.getConfig().getDouble("particles.half-detail-distance", 64));
+    }
+
+    /**
+     * Начало нового тика: бюджет и список зрителей сбрасываются
+     */
+    void tick() {
+        used = 0;
+        viewers.clear();
+    }
+
+    public void spawn(Particle particle, Location location, int count,
+                      double offsetX, double offsetY, double offsetZ, double extra) {
+        spawn(location.getWorld(), particle, location.getX(), location.getY(), location.getZ(),
+                count, offsetX, offsetY, offsetZ, extra, null);
+    }
+
+    public <T> void spawn(World world, Particle particle, double x, double y, double z, int count,
+                          double offsetX, double offsetY, double offsetZ, double extra, T data) {
+        if (used >= budgetPerTick) {
+            dropped++;
+            return;
+        }
+
+        List<Player> players = viewers.get(world);
+        if (players == null) {
+            players = scheduler.getPlayers(world);
+            viewers.put(world, players);
+        }
+
+        for (Player player : players) {
+            Location position = player.getLocation(viewerLocation);
+            double dx = position.getX() - x;
+            double dy = position.getY() - y;
+            double dz = position.getZ() - z;
+            double distanceSquared = dx * dx + dy * dy + dz * dz;
+
+            if (distanceSquared > viewDistanceSquared) {
+                continue;
+            }
+
+            int visible = scale(count, distanceSquared);
+            if (visible == 0) {
+                continue;
+            }
+
+            if (used + visible > budgetPerTick) {
+                dropped++;
+                return;
+            }
+
+            used += visible;
+            player.spawnParticle(particle, x, y, z, visible, offsetX, offsetY, offsetZ, extra, data);
+        }
+    }
+
+    /**
+     * Число частиц с учетом уровня детализации; дробная часть округляется случайно,
+     * чтобы одиночные частицы вдали появлялись реже, а не пропадали совсем
+     */
+    private int scale(int count, double distanceSquared) {
+        double factor;
+        if (distanceSquared <= fullDetailDistanceSquared) {
+            return count;
+        } else if (distanceSquared <= halfDetailDistanceSquared) {
+            factor = 0.5;
+        } else {
+            factor = 0.25;
+        }
+
+        double scaled = count * factor;
+        int whole = (int) scaled;
+        return whole + (random.nextDouble() < scaled - whole ? 1 : 0);
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    private static double square(double value) {
+        return value * value;
+    }
+}
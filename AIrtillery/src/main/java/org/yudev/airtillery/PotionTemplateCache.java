@@ -0,0 +1,89 @@
+package org.yudev.airtillery;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.PotionMeta;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Готовые предметы зелий для артиллерии. Предмет с эффектом собирается один раз на набор
+ * (тип, эффект, длительность, сила); ThrownPotion.setItem копирует его сам, так что шаблон
+ * можно передавать напрямую. Кеш синхронизирован: на Folia снаряды запускаются из потоков
+ * разных регионов; если два потока соберут один шаблон одновременно, останется любой из них
+ */
+public class PotionTemplateCache {
+    private static final int MAX_TEMPLATES = 128;
+
+    private final Map<Key, ItemStack> templates = Collections.synchronizedMap(
+            new LinkedHashMap<Key, ItemStack>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, ItemStack> eldest) {
+                    return size() > MAX_TEMPLATES;
+                }
+            });
+
+    public ItemStack get(Material material, String potionEffect, int duration, int amplifier) {
+        Key key = new Key(material, potionEffect, duration, amplifier);
+
+        ItemStack template = templates.get(key);
+        if (template == null) {
+            template = build(material, potionEffect, duration, amplifier);
+            templates.put(key, template);
+        }
+        return template;
+    }
+
+    private ItemStack build(Material material, String potionEffect, int duration, int amplifier) {
+        ItemStack item = new ItemStack(material);
+
+        if (potionEffect != null) {
+            PotionEffectType effectType = PotionEffectType.getByName(potionEffect);
+            if (effectType != null) {
+                PotionMeta meta = (PotionMeta) item.getItemMeta();
+                meta.addCustomEffect(new PotionEffect(effectType, duration, amplifier), true);
+                meta.setColor(ArtilleryManager.getPotionColor(effectType));
+                item.setItemMeta(meta);
+            }
+        }
+
+        return item;
+    }
+
+    private static final class Key {
+        private final Material material;
+        private final String potionEffect;
+        private final int duration;
+        private final int amplifier;
+
+        Key(Material material, String potionEffect, int duration, int amplifier) {
+            this.material = material;
+            this.potionEffect = potionEffect;
+            this.duration = duration;
+            this.amplifier = amplifier;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return material == key.material && duration == key.duration && amplifier == key.amplifier &&
+                    Objects.equals(potionEffect, key.potionEffect);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(material, potionEffect, duration, amplifier);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.yudev.airtillery;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.ProjectileHitEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+
+/**
+ * Передает приземления артиллерийских снарядов в {@link ProjectileTracker}:
+ * стрелы, трезубцы и зелья - по попаданию, TNT - по касанию блока.
+ * Снаряды из выгружаемых чанков сразу убираются из реестра
+ */
+public class ProjectileLandingListener implements Listener {
+    private final ArtilleryManager artilleryManager;
+
+    public ProjectileLandingListener(ArtilleryManager artilleryManager) {
+        this.artilleryManager = artilleryManager;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onProjectileHit(ProjectileHitEvent event) {
+        artilleryManager.handleProjectileLanding(event.getEntity());
+    }
+
+    @EventHandler
+    public void onTntLand(EntityChangeBlockEvent event) {
+        if (event.getEntityType() == EntityType.PRIMED_TNT &&
+                artilleryManager.handleProjectileLanding(event.getEntity())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        if (artilleryManager.getTrackedProjectileCount() == 0) {
+            return;
+        }
+
+        for (Entity entity : event.getChunk().getEntities()) {
+            artilleryManager.releaseProjectile(entity);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.yudev.airtillery;
+
+import org.bukkit.entity.Entity;
+
+import java.util.UUID;
+
+/**
+ * Реестр летящих артиллерийских снарядов: {@link ProjectileTracker} для обычного сервера,
+ * {@link EntityProjectileTracker} для Folia
+ */
+public interface ProjectileRegistry {
+
+    void track(Entity projectile, String projectileType, UUID owner);
+
+    int size();
+
+    boolean contains(Entity projectile);
+
+    /**
+     * Отмечает приземление по событию
+     *
+     * @return false, если снаряд не выпущен артиллерией или уже приземлился
+     */
+    boolean land(Entity projectile);
+
+    /**
+     * Убирает снаряд из реестра, не трогая саму сущность
+     */
+    void untrack(Entity projectile);
+
+    /**
+     * Очищает реестр при выключении плагина
+     */
+    void clear();
+}
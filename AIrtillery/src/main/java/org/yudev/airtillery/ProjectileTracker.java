@@ -0,0 +1,349 @@
+package org.yudev.airtillery;
+
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.entity.Arrow;
+import org.bukkit.entity.Entity;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.Vector;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Единый реестр летящих снарядов. Состояние хранится в параллельных массивах и обходится
+ * одной задачей раз в тик. У каждой фазы обхода свой бюджет времени: если он исчерпан,
+ * фаза продолжит с того же места в следующем тике.
+ * Падение снарядов приходит из событий (см. {@link ProjectileLandingListener}); опрос скоростей
+ * остался только как редкая страховочная проверка. Упавшие стрелы и трезубцы убираются
+ * таймером из {@link TimingWheel}. Все это выполняется в основном потоке; на Folia вместо этого
+ * реестра работает {@link EntityProjectileTracker}
+ */
+public class ProjectileTracker implements ProjectileRegistry {
+    private static final int TRACKING_DELAY_TICKS = 5;
+    private static final int GROUNDED_LIFETIME_TICKS = 60;
+    private static final int VISUALIZATION_INTERVAL = 4;
+    private static final int BUDGET_CHECK_INTERVAL = 16;
+
+    private final ArtilleryPlugin plugin;
+    private final BiConsumer<Entity, String> landingHandler;
+    private final InFlightBudget budget;
+    private final ParticleService particleService;
+    private final TimingWheel timingWheel;
+    private final int sweepInterval;
+    private final long sweepBudgetNanos;
+    private final long visualizationBudgetNanos;
+    private final Random random = new Random();
+
+    private Entity[] entities = new Entity[64];
+    private String[] projectileTypes = new String[64];
+    private UUID[] owners = new UUID[64];
+    private UUID[] worlds = new UUID[64];
+    private long[] launchTicks = new long[64];
+    private long[] unchangedSince = new long[64];
+    private long[] groundedAt = new long[64];
+    private double[] lastVelocityX = new double[64];
+    private double[] lastVelocityY = new double[64];
+    private double[] lastVelocityZ = new double[64];
+    private TimingWheel.Timeout[] removalTimers = new TimingWheel.Timeout[64];
+    private int size = 0;
+    private final IntIntMap slots = new IntIntMap(64);
+
+    private int sweepCursor = 0;
+    private int visualizationCursor = 0;
+    private long currentTick = 0;
+    private BukkitTask task;
+
+    public ProjectileTracker(ArtilleryPlugin plugin, InFlightBudget budget, ParticleService particleService,
+                             TimingWheel timingWheel, BiConsumer<Entity, String> landingHandler) {
+        this.plugin = plugin;
+        this.budget = budget;
+        this.particleService = particleService;
+        this.timingWheel = timingWheel;
+        this.landingHandler = landingHandler;
+        this.sweepInterval = Math.max(1, plugin.getConfig().getInt("projectile-tracker.sweep-interval", 10));
+        this.sweepBudgetNanos = plugin.getConfig().getLong("projectile-tracker.sweep-budget-us", 2000) * 1000;
+        this.visualizationBudgetNanos = plugin.getConfig().getLong("projectile-tracker.visualization-budget-us", 500) * 1000;
+    }
+
+    @Override
+    public void track(Entity projectile, String projectileType, UUID owner) {
+        if (size == entities.length) {
+            grow();
+        }
+
+        Vector velocity = projectile.getVelocity();
+
+        entities[size] = projectile;
+        projectileTypes[size] = projectileType;
+        owners[size] = owner;
+        worlds[size] = projectile.getWorld().getUID();
+        budget.acquire(owner, worlds[size]);
+        launchTicks[size] = currentTick;
+        unchangedSince[size] = currentTick;
+        groundedAt[size] = -1;
+        lastVelocityX[size] = velocity.getX();
+        lastVelocityY[size] = velocity.getY();
+        lastVelocityZ[size] = velocity.getZ();
+        removalTimers[size] = null;
+        slots.put(projectile.getEntityId(), size);
+        size++;
+
+        if (task == null) {
+            task = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    tick();
+                }
+            }.runTaskTimer(plugin, 1L, 1L);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Entity projectile) {
+        return slots.get(projectile.getEntityId(), -1) >= 0;
+    }
+
+    @Override
+    public boolean land(Entity projectile) {
+        int slot = slots.get(projectile.getEntityId(), -1);
+        if (slot < 0 || groundedAt[slot] >= 0) {
+            return false;
+        }
+
+        markGrounded(slot, projectile, "event");
+        return true;
+    }
+
+    @Override
+    public void untrack(Entity projectile) {
+        int slot = slots.get(projectile.getEntityId(), -1);
+        if (slot >= 0) {
+            remove(slot);
+        }
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(entities, 0, size, null);
+        Arrays.fill(projectileTypes, 0, size, null);
+        Arrays.fill(owners, 0, size, null);
+        Arrays.fill(worlds, 0, size, null);
+        for (int i = 0; i < size; i++) {
+            if (removalTimers[i] != null) {
+                removalTimers[i].cancel();
+                removalTimers[i] = null;
+            }
+        }
+        slots.clear();
+        budget.clear();
+        size = 0;
+        sweepCursor = 0;
+        visualizationCursor = 0;
+
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private void markGrounded(int i, Entity projectile, String reason) {
+        String projectileType = projectileTypes[i];
+        groundedAt[i] = currentTick;
+
+        if (isRemovedAfterLanding(projectileType)) {
+            removalTimers[i] = timingWheel.schedule(GROUNDED_LIFETIME_TICKS, () -> removeGrounded(projectile));
+        }
+
+        landingHandler.accept(projectile, projectileType);
+
+        if (plugin.getConfig().getBoolean("debug-mode", false)) {
+            plugin.getLogger().info("Projectile grounded: " + projectileType + " (" + reason + ")");
+        }
+    }
+
+    private void removeGrounded(Entity projectile) {
+        int slot = slots.get(projectile.getEntityId(), -1);
+        if (slot < 0) {
+            return;
+        }
+
+        String projectileType = projectileTypes[slot];
+        removalTimers[slot] = null;
+        projectile.remove();
+        remove(slot);
+
+        if (plugin.getConfig().getBoolean("debug-mode", false)) {
+            plugin.getLogger().info("Removed grounded projectile: " + projectileType);
+        }
+    }
+
+    private void tick() {
+        currentTick++;
+
+        if (sweepCursor > 0 || currentTick % sweepInterval == 0) {
+            runSweepPhase();
+        }
+        runVisualizationPhase();
+
+        if (size == 0) {
+            task.cancel();
+            task = null;
+            sweepCursor = 0;
+            visualizationCursor = 0;
+        }
+    }
+
+    /**
+     * Страховочный обход: удаляет исчезнувшие снаряды и ловит приземления,
+     * для которых не пришло событие
+     */
+    private void runSweepPhase() {
+        long deadline = System.nanoTime() + sweepBudgetNanos;
+        int processed = 0;
+        int i = sweepCursor < size ? sweepCursor : 0;
+
+        while (i < size) {
+            if (++processed % BUDGET_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                sweepCursor = i;
+                return;
+            }
+
+            Entity projectile = entities[i];
+            if (!projectile.isValid() || projectile.isDead()) {
+                remove(i);
+                continue;
+            }
+
+            if (currentTick - launchTicks[i] < TRACKING_DELAY_TICKS) {
+                i++;
+                continue;
+            }
+
+            if (groundedAt[i] < 0) {
+                checkLanding(i, projectile);
+                // Обработчик приземления мог снять снаряд, и на его место встала последняя запись
+                if (entities[i] != projectile) {
+                    continue;
+                }
+            }
+
+            i++;
+        }
+
+        sweepCursor = 0;
+    }
+
+    private void checkLanding(int i, Entity projectile) {
+        Vector velocity = projectile.getVelocity();
+
+        double dx = velocity.getX() - lastVelocityX[i];
+        double dy = velocity.getY() - lastVelocityY[i];
+        double dz = velocity.getZ() - lastVelocityZ[i];
+        if (dx * dx + dy * dy + dz * dz >= 0.001 * 0.001) {
+            unchangedSince[i] = currentTick;
+        }
+
+        lastVelocityX[i] = velocity.getX();
+        lastVelocityY[i] = velocity.getY();
+        lastVelocityZ[i] = velocity.getZ();
+
+        boolean velocityNearZero = velocity.lengthSquared() < 0.01;
+        boolean velocityUnchanged = currentTick - unchangedSince[i] > 5;
+        boolean isInBlock = projectile instanceof Arrow && ((Arrow) projectile).isInBlock();
+
+        if (velocityNearZero || velocityUnchanged || isInBlock) {
+            markGrounded(i, projectile, "sweep: velocityNearZero=" + velocityNearZero +
+                    ", velocityUnchanged=" + velocityUnchanged +
+                    ", isInBlock=" + isInBlock);
+        }
+    }
+
+    private void runVisualizationPhase() {
+        long deadline = System.nanoTime() + visualizationBudgetNanos;
+        int processed = 0;
+        int i = visualizationCursor < size ? visualizationCursor : 0;
+
+        for (; i < size; i++) {
+            if (++processed % BUDGET_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                visualizationCursor = i;
+                return;
+            }
+
+            if ((currentTick - launchTicks[i]) % VISUALIZATION_INTERVAL != 0) {
+                continue;
+            }
+
+            if (projectileTypes[i].equalsIgnoreCase("TNT") && random.nextDouble() > 0.7) {
+                Entity projectile = entities[i];
+                Location loc = projectile.getLocation();
+                particleService.spawn(Particle.SMOKE_NORMAL, loc, 1, 0.05, 0.05, 0.05, 0.01);
+            }
+        }
+
+        visualizationCursor = 0;
+    }
+
+    private static boolean isRemovedAfterLanding(String projectileType) {
+        return projectileType.equals("ARROW") ||
+                projectileType.equals("FLAMING_ARROW") ||
+                projectileType.equals("TRIDENT");
+    }
+
+    /**
+     * Удаляет запись, переставляя на ее место последнюю
+     */
+    private void remove(int i) {
+        int last = --size;
+
+        budget.release(owners[i], worlds[i]);
+        if (removalTimers[i] != null) {
+            removalTimers[i].cancel();
+        }
+        slots.remove(entities[i].getEntityId());
+        if (i != last) {
+            slots.put(entities[last].getEntityId(), i);
+        }
+
+        entities[i] = entities[last];
+        projectileTypes[i] = projectileTypes[last];
+        owners[i] = owners[last];
+        worlds[i] = worlds[last];
+        launchTicks[i] = launchTicks[last];
+        unchangedSince[i] = unchangedSince[last];
+        groundedAt[i] = groundedAt[last];
+        lastVelocityX[i] = lastVelocityX[last];
+        lastVelocityY[i] = lastVelocityY[last];
+        lastVelocityZ[i] = lastVelocityZ[last];
+        removalTimers[i] = removalTimers[last];
+
+        entities[last] = null;
+        removalTimers[last] = null;
+        projectileTypes[last] = null;
+        owners[last] = null;
+        worlds[last] = null;
+    }
+
+    private void grow() {
+        int capacity = entities.length * 2;
+        entities = Arrays.copyOf(entities, capacity);
+        projectileTypes = Arrays.copyOf(projectileTypes, capacity);
+        owners = Arrays.copyOf(owners, capacity);
+        worlds = Arrays.copyOf(worlds, capacity);
+        launchTicks = Arrays.copyOf(launchTicks, capacity);
+        unchangedSince = Arrays.copyOf(unchangedSince, capacity);
+        groundedAt = Arrays.copyOf(groundedAt, capacity);
+        lastVelocityX = Arrays.copyOf(lastVelocityX, capacity);
+        lastVelocityY = Arrays.copyOf(lastVelocityY, capacity);
+        lastVelocityZ = Arrays.copyOf(lastVelocityZ, capacity);
+        removalTimers = Arrays.copyOf(removalTimers, capacity);
+    }
+}
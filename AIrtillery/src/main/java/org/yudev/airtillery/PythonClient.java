@@ -8,8 +8,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.ArrayList;
-import java.util.List;
 
 public class PythonClient {
     private final String serverUrl;
@@ -20,24 +18,32 @@ public class PythonClient {
         this.serverUrl = serverUrl;
     }
 
-    public List<Double> getVelocities(List<TargetPoint> targets, String projectileType) throws Exception {
+    /**
+     * Запрашивает скорости для точек залпа, которые не решил оптимизатор, и записывает их в план
+     */
+    public void resolveVelocities(VolleyPlan plan, String projectileType) throws Exception {
+        int unresolved = plan.countUnresolved();
         MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
 
         packer.packMapHeader(1);
         packer.packString("targets");
 
-        packer.packArrayHeader(targets.size());
-        for (TargetPoint point : targets) {
+        packer.packArrayHeader(unresolved);
+        for (int i = 0; i < plan.size(); i++) {
+            if (plan.isResolved(i)) {
+                continue;
+            }
+
             packer.packMapHeader(4);
 
             packer.packString("horizontal_distance");
-            packer.packDouble(point.getHorizontalDistance());
+            packer.packDouble(plan.getHorizontalDistance(i));
 
             packer.packString("height_difference");
-            packer.packDouble(point.getHeightDifference());
+            packer.packDouble(plan.getHeightDifference(i));
 
             packer.packString("angle_radians");
-            packer.packDouble(point.getAngleRadians());
+            packer.packDouble(plan.getAngleRadians(i));
 
             packer.packString("projectile_type");
             packer.packString(projectileType);
@@ -46,7 +52,7 @@ public class PythonClient {
         byte[] requestBody = packer.toByteArray();
         packer.close();
 
-        plugin.getLogger().info("Sending MessagePack request to Python server: " + targets.size() + " targets");
+        plugin.getLogger().info("Sending MessagePack request to Python server: " + unresolved + " targets");
 
         HttpURLConnection connection = null;
         try {
@@ -121,15 +127,19 @@ public class PythonClient {
             }
 
             int arraySize = unpacker.unpackArrayHeader();
-            List<Double> velocities = new ArrayList<>(arraySize);
-            for (int i = 0; i < arraySize; i++) {
-                velocities.add(unpacker.unpackDouble());
+            if (arraySize != unresolved) {
+                throw new Exception("Unexpected response size: " + arraySize + " velocities for " + unresolved + " targets");
+            }
+
+            for (int i = 0; i < plan.size(); i++) {
+                if (!plan.isResolved(i)) {
+                    plan.setVelocity(i, unpacker.unpackDouble());
+                }
             }
 
-            plugin.getLogger().info("Received and unpacked velocities: " + velocities);
-            return velocities;
+            plugin.getLogger().info("Received and unpacked " + arraySize + " velocities");
         } catch (Exception e) {
-            plugin.getLogger().severe("Error in getVelocities: " + e.getMessage());
+            plugin.getLogger().severe("Error in resolveVelocities: " + e.getMessage());
             throw e;
         } finally {
             if (connection != null) {
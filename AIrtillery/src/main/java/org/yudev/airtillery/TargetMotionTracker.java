@@ -0,0 +1,232 @@
+package org.yudev.airtillery;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Vector;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Хранит последние положения возможных целей в кольцевых буферах и оценивает их скорость.
+ * Игроки опрашиваются всегда, остальные сущности - пока они недавно были целью обстрела.
+ * На обычном сервере все цели опрашивает одна задача основного потока. На Folia у каждой цели
+ * своя задача в планировщике сущности со своим счетчиком тиков, а историю цели читает только
+ * поток ее региона
+ */
+public class TargetMotionTracker {
+    private static final long WATCH_DURATION_TICKS = 20 * 60;
+    private static final double MIN_SPEED = 0.02;
+
+    private final ArtilleryPlugin plugin;
+    private final ArtilleryScheduler scheduler;
+    private final int historySize;
+    private final int sampleInterval;
+
+    private final Map<Integer, MotionHistory> histories = new ConcurrentHashMap<>();
+    private final Map<Integer, Entity> watchedEntities = new HashMap<>();
+    private final Map<Integer, Long> watchExpiry = new HashMap<>();
+    private long currentTick = 0;
+
+    public TargetMotionTracker(ArtilleryPlugin plugin, ArtilleryScheduler scheduler, int historySize,
+                               int sampleInterval) {
+        this.plugin = plugin;
+        this.scheduler = scheduler;
+        this.historySize = Math.max(2, historySize);
+        this.sampleInterval = Math.max(1, sampleInterval);
+    }
+
+    public void start() {
+        if (!scheduler.isRegionized()) {
+            scheduler.runGlobalTimer(this::sample, sampleInterval, sampleInterval);
+            return;
+        }
+
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            addPlayer(player);
+        }
+    }
+
+    /**
+     * Начинает опрашивать вошедшего игрока; нужно только на Folia, где нет общего обхода игроков
+     */
+    public void addPlayer(Player player) {
+        if (scheduler.isRegionized()) {
+            scheduler.runForEntity(player, () -> startSampling(player, Long.MAX_VALUE), () -> { });
+        }
+    }
+
+    /**
+     * Начинает опрашивать сущность, не являющуюся игроком
+     */
+    public void watch(Entity entity) {
+        if (entity instanceof Player) {
+            return;
+        }
+
+        if (scheduler.isRegionized()) {
+            MotionHistory history = histories.get(entity.getEntityId());
+            if (history != null) {
+                history.expiresAt = history.clock + WATCH_DURATION_TICKS;
+            } else {
+                startSampling(entity, WATCH_DURATION_TICKS);
+            }
+            return;
+        }
+
+        watchedEntities.put(entity.getEntityId(), entity);
+        watchExpiry.put(entity.getEntityId(), currentTick + WATCH_DURATION_TICKS);
+    }
+
+    /**
+     * Задача опроса одной цели в планировщике сущности; время в истории считается ее собственными тиками
+     */
+    private void startSampling(Entity entity, long watchTicks) {
+        int id = entity.getEntityId();
+        if (histories.containsKey(id)) {
+            return;
+        }
+
+        MotionHistory history = new MotionHistory(historySize);
+        history.expiresAt = watchTicks;
+        histories.put(id, history);
+
+        history.task = scheduler.runForEntityTimer(entity, () -> {
+            history.clock += sampleInterval;
+            if (history.clock > history.expiresAt) {
+                history.task.cancel();
+                histories.remove(id, history);
+                return;
+            }
+
+            Location location = entity.getLocation();
+            history.add(history.clock, location.getX(), location.getZ());
+        }, () -> histories.remove(id, history), sampleInterval, sampleInterval);
+    }
+
+    private void sample() {
+        currentTick += sampleInterval;
+
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            record(player);
+        }
+
+        Iterator<Map.Entry<Integer, Entity>> iterator = watchedEntities.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Entity> entry = iterator.next();
+            Entity entity = entry.getValue();
+
+            if (!entity.isValid() || watchExpiry.get(entry.getKey()) < currentTick) {
+                iterator.remove();
+                watchExpiry.remove(entry.getKey());
+                histories.remove(entry.getKey());
+                continue;
+            }
+
+            record(entity);
+        }
+
+        histories.values().removeIf(history -> currentTick - history.latestTick() > WATCH_DURATION_TICKS);
+    }
+
+    private void record(Entity entity) {
+        MotionHistory history = histories.get(entity.getEntityId());
+        if (history == null) {
+            history = new MotionHistory(historySize);
+            histories.put(entity.getEntityId(), history);
+        }
+
+        Location location = entity.getLocation();
+        history.add(currentTick, location.getX(), location.getZ());
+    }
+
+    /**
+     * Горизонтальная скорость цели в блоках/тик по истории положений.
+     * Без истории используется скорость сущности, которую сообщает сервер
+     */
+    public Vector estimateVelocity(Entity entity) {
+        MotionHistory history = histories.get(entity.getEntityId());
+        boolean fresh = history != null &&
+                (scheduler.isRegionized() || currentTick - history.latestTick() <= sampleInterval * 2L);
+        Vector velocity = fresh && history.size() >= 2
+                ? history.velocity()
+                : entity.getVelocity().setY(0);
+
+        if (velocity.lengthSquared() < MIN_SPEED * MIN_SPEED) {
+            return velocity.zero();
+        }
+        return velocity;
+    }
+
+    private static final class MotionHistory {
+        private final long[] ticks;
+        private final double[] xs;
+        private final double[] zs;
+        private int head = 0;
+        private int size = 0;
+        private long clock = 0;
+        private long expiresAt;
+        private volatile ArtilleryScheduler.Task task;
+
+        MotionHistory(int capacity) {
+            this.ticks = new long[capacity];
+            this.xs = new double[capacity];
+            this.zs = new double[capacity];
+        }
+
+        void add(long tick, double x, double z) {
+            ticks[head] = tick;
+            xs[head] = x;
+            zs[head] = z;
+            head = (head + 1) % ticks.length;
+            if (size < ticks.length) {
+                size++;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        long latestTick() {
+            return ticks[(head - 1 + ticks.length) % ticks.length];
+        }
+
+        /**
+         * Наклон прямой наименьших квадратов x(t), z(t) по всем точкам буфера
+         */
+        Vector velocity() {
+            long origin = latestTick();
+            double sumT = 0;
+            double sumTT = 0;
+            double sumX = 0;
+            double sumZ = 0;
+            double sumTX = 0;
+            double sumTZ = 0;
+
+            for (int i = 0; i < size; i++) {
+                int index = (head - 1 - i + ticks.length) % ticks.length;
+                double t = ticks[index] - origin;
+                sumT += t;
+                sumTT += t * t;
+                sumX += xs[index];
+                sumZ += zs[index];
+                sumTX += t * xs[index];
+                sumTZ += t * zs[index];
+            }
+
+            double denominator = size * sumTT - sumT * sumT;
+            if (denominator == 0) {
+                return new Vector();
+            }
+
+            return new Vector(
+                    (size * sumTX - sumT * sumX) / denominator,
+                    0,
+                    (size * sumTZ - sumT * sumZ) / denominator);
+        }
+    }
+}
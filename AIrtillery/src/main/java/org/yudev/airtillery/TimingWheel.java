@@ -0,0 +1,180 @@
+package org.yudev.airtillery;
+
+import java.util.logging.Level;
+
+/**
+ * Иерархическое колесо таймеров для отложенных действий артиллерии. Все действия обслуживаются
+ * одной задачей раз в тик в потоке своего {@link ArtilleryRegion}; постановка и отмена таймера
+ * выполняются за O(1).
+ * Четыре уровня по 64 ячейки: нижний хранит ближайшие 64 тика, каждый следующий в 64 раза грубее.
+ * Когда нижний уровень проходит круг, ячейка следующего уровня раскладывается по нижним
+ */
+public class TimingWheel {
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final ArtilleryPlugin plugin;
+    private final ArtilleryRegion region;
+    private final Timeout[][] wheel = new Timeout[LEVELS][SLOTS];
+    private long currentTick = 0;
+    private int size = 0;
+    private ArtilleryScheduler.Task task;
+
+    public TimingWheel(ArtilleryPlugin plugin, ArtilleryRegion region) {
+        this.plugin = plugin;
+        this.region = region;
+
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timeout head = new Timeout(null, 0, null);
+                head.prev = head;
+                head.next = head;
+                wheel[level][slot] = head;
+            }
+        }
+    }
+
+    /**
+     * Выполняет действие через delayTicks тиков (не меньше одного)
+     */
+    public Timeout schedule(long delayTicks, Runnable action) {
+        Timeout timeout = new Timeout(this, currentTick + Math.max(1, delayTicks), action);
+        insert(timeout);
+        size++;
+
+        if (task == null) {
+            task = region.runTimer(this::tick, 1L, 1L);
+        }
+        return timeout;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timeout head = wheel[level][slot];
+                for (Timeout timeout = head.next; timeout != head; ) {
+                    Timeout next = timeout.next;
+                    timeout.prev = null;
+                    timeout.next = null;
+                    timeout = next;
+                }
+                head.prev = head;
+                head.next = head;
+            }
+        }
+        size = 0;
+
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private void insert(Timeout timeout) {
+        long delta = Math.min(timeout.deadline - currentTick, MAX_DELTA);
+        long target = currentTick + Math.max(0, delta);
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+
+        Timeout head = wheel[level][(int) (target >>> (SLOT_BITS * level)) & SLOT_MASK];
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+    }
+
+    private void tick() {
+        currentTick++;
+        cascade(1);
+
+        Timeout head = wheel[0][(int) currentTick & SLOT_MASK];
+        while (head.next != head) {
+            Timeout timeout = head.next;
+            timeout.unlink();
+            size--;
+
+            try {
+                timeout.action.run();
+            } catch (RuntimeException e) {
+                plugin.getLogger().log(Level.WARNING, "Deferred artillery action failed", e);
+            }
+        }
+
+        if (size == 0 && task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Раскладывает ячейку уровня level, если нижний уровень только что прошел полный круг
+     */
+    private void cascade(int level) {
+        if (level >= LEVELS || (currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+            return;
+        }
+
+        cascade(level + 1);
+
+        Timeout head = wheel[level][(int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK];
+        Timeout timeout = head.next;
+        head.prev = head;
+        head.next = head;
+
+        while (timeout != head) {
+            Timeout next = timeout.next;
+            insert(timeout);
+            timeout = next;
+        }
+    }
+
+    /**
+     * Поставленное в колесо действие
+     */
+    public static final class Timeout {
+        private final TimingWheel wheel;
+        private final long deadline;
+        private final Runnable action;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimingWheel wheel, long deadline, Runnable action) {
+            this.wheel = wheel;
+            this.deadline = deadline;
+            this.action = action;
+        }
+
+        public boolean isPending() {
+            return prev != null;
+        }
+
+        /**
+         * @return false, если действие уже выполнено или отменено
+         */
+        public boolean cancel() {
+            if (prev == null) {
+                return false;
+            }
+            unlink();
+            wheel.size--;
+            return true;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+    }
+}
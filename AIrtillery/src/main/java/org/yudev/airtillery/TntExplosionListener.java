@@ -2,10 +2,11 @@ package org.yudev.airtillery;
 
 import org.bukkit.Location;
 import org.bukkit.Particle;
-import org.bukkit.entity.TNTPrimed;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.entity.EntityChangeBlockEvent;
 import org.bukkit.event.entity.EntityExplodeEvent;
 
 public class TntExplosionListener implements Listener {
@@ -15,40 +16,35 @@ public class TntExplosionListener implements Listener {
         this.plugin = plugin;
     }
 
-    @EventHandler
-    public void onEntityLand(EntityChangeBlockEvent event) {
-        if (event.getEntity() instanceof TNTPrimed) {
-            TNTPrimed tnt = (TNTPrimed) event.getEntity();
-
-            if (tnt.hasMetadata("artillery_tnt")) {
-                tnt.setFuseTicks(0);
-                event.setCancelled(true);
-                Location location = tnt.getLocation();
-                location.getWorld().spawnParticle(
-                        Particle.EXPLOSION_LARGE,
-                        location,
-                        5, 0.5, 0.5, 0.5, 0
-                );
-            }
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onTntExplode(EntityExplodeEvent event) {
+        if (event.getEntityType() != EntityType.PRIMED_TNT) {
+            return;
         }
-    }
 
-    @EventHandler
-    public void onTntExplode(EntityExplodeEvent event) {
-        if (event.getEntity() instanceof TNTPrimed) {
-            TNTPrimed tnt = (TNTPrimed) event.getEntity();
-
-            if (tnt.hasMetadata("artillery_tnt")) {
-                if (tnt.getVelocity().lengthSquared() < 0.01) {
-
-                    Location location = tnt.getLocation();
-                    location.getWorld().spawnParticle(
-                            Particle.EXPLOSION_HUGE,
-                            location,
-                            1, 0, 0, 0, 0
-                    );
-                }
-            }
+        ArtilleryManager artilleryManager = plugin.getArtilleryManager();
+        Entity tnt = event.getEntity();
+        if (!artilleryManager.isArtilleryProjectile(tnt)) {
+            return;
+        }
+
+        // Взорвавшийся TNT сразу освобождает место в лимите снарядов
+        artilleryManager.releaseProjectile(tnt);
+
+        // Блоки, уже посчитанные ванильным взрывом, ломаются порциями в следующих тиках
+        AsyncExplosionService asyncExplosions = artilleryManager.getAsyncExplosions();
+        if (asyncExplosions != null && !event.isCancelled()) {
+            asyncExplosions.commitLater(event.blockList(), event.getYield());
+            event.blockList().clear();
+        }
+
+        if (tnt.getVelocity().lengthSquared() < 0.01) {
+            Location location = tnt.getLocation();
+            artilleryManager.getParticleService(location).spawn(
+                    Particle.EXPLOSION_HUGE,
+                    location,
+                    1, 0, 0, 0, 0
+            );
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,125 @@
+package org.yudev.airtillery;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.yudev.ballistics.TntModelFitter;
+import org.yudev.ballistics.TntMotionModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Загружает модель TNT: подбирает ее по записям TrajectoryRecorder или читает ранее сохраненную
+ */
+public class TntModelLoader {
+    private final ArtilleryPlugin plugin;
+    private final File modelFile;
+
+    public TntModelLoader(ArtilleryPlugin plugin) {
+        this.plugin = plugin;
+        this.modelFile = new File(plugin.getDataFolder(), "tnt_model.yml");
+    }
+
+    public TntMotionModel load() {
+        File trajectoriesDirectory = new File(plugin.getConfig().getString(
+                "tnt-model.trajectories-path", "plugins/TrajectoryRecorder/trajectories"));
+        double maxLandingError = plugin.getConfig().getDouble("tnt-model.max-landing-error", 2.0);
+
+        TntMotionModel model = null;
+
+        if (trajectoriesDirectory.isDirectory()) {
+            try {
+                model = new TntModelFitter().fit(trajectoriesDirectory);
+                if (model != null) {
+                    save(model);
+                }
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to fit TNT model from " +
+                        trajectoriesDirectory.getPath() + ": " + e.getMessage());
+            }
+        }
+
+        if (model == null && modelFile.exists()) {
+            model = read();
+        }
+
+        if (model == null) {
+            plugin.getLogger().info("No TNT trajectories found, TNT velocities will be requested from the Python server");
+            return null;
+        }
+
+        if (model.getLandingError() > maxLandingError) {
+            plugin.getLogger().warning(String.format(
+                    "TNT model landing error %.2f exceeds %.2f blocks, keeping the Python server for TNT",
+                    model.getLandingError(), maxLandingError));
+            return null;
+        }
+
+        plugin.getLogger().info(String.format("TNT model loaded: landing error %.2f blocks, max velocity %.2f",
+                model.getLandingError(), model.getMaxFittedVelocity()));
+        return model;
+    }
+
+    private void save(TntMotionModel model) {
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("vertical-breaks", toList(model.getVerticalBreaks()));
+        yaml.set("horizontal-factors", toList(model.getHorizontalFactors()));
+        yaml.set("vertical-factors", toList(model.getVerticalFactors()));
+        yaml.set("vertical-offsets", toList(model.getVerticalOffsets()));
+        yaml.set("launch-horizontal-factor", model.getLaunchHorizontalFactor());
+        yaml.set("launch-vertical-factor", model.getLaunchVerticalFactor());
+        yaml.set("launch-vertical-offset", model.getLaunchVerticalOffset());
+        yaml.set("max-velocity", model.getMaxFittedVelocity());
+        yaml.set("landing-error", model.getLandingError());
+
+        try {
+            yaml.save(modelFile);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to save TNT model: " + e.getMessage());
+        }
+    }
+
+    private TntMotionModel read() {
+        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(modelFile);
+
+        // Модели без шага запуска подобраны со сдвигом на тик, их нужно подобрать заново
+        if (!yaml.contains("launch-vertical-offset")) {
+            plugin.getLogger().warning("TNT model file " + modelFile.getName() +
+                    " has no launch step, refit it from TrajectoryRecorder data");
+            return null;
+        }
+
+        try {
+            return new TntMotionModel(
+                    toArray(yaml.getDoubleList("vertical-breaks")),
+                    toArray(yaml.getDoubleList("horizontal-factors")),
+                    toArray(yaml.getDoubleList("vertical-factors")),
+                    toArray(yaml.getDoubleList("vertical-offsets")),
+                    yaml.getDouble("launch-horizontal-factor", 1.0),
+                    yaml.getDouble("launch-vertical-factor", 1.0),
+                    yaml.getDouble("launch-vertical-offset"),
+                    yaml.getDouble("max-velocity"),
+                    yaml.getDouble("landing-error"));
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Invalid TNT model file " + modelFile.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static List<Double> toList(double[] values) {
+        List<Double> list = new ArrayList<>(values.length);
+        for (double value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static double[] toArray(List<Double> values) {
+        double[] array = new double[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+}
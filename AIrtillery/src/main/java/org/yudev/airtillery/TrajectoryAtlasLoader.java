@@ -0,0 +1,86 @@
+package org.yudev.airtillery;
+
+import org.yudev.ballistics.MotionModel;
+import org.yudev.ballistics.TrajectoryAtlas;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Строит атласы траекторий по настройкам из config.yml и кэширует их на диске
+ */
+public class TrajectoryAtlasLoader {
+    private final ArtilleryPlugin plugin;
+    private final double[] angles;
+    private final double velocityStep;
+    private final double maxDistance;
+    private final double minHeight;
+    private final boolean cacheToDisk;
+
+    public TrajectoryAtlasLoader(ArtilleryPlugin plugin) {
+        this.plugin = plugin;
+
+        double minAngle = plugin.getConfig().getDouble("launch-optimizer.min-angle", 10);
+        double maxAngle = plugin.getConfig().getDouble("launch-optimizer.max-angle", 70);
+        double angleStep = plugin.getConfig().getDouble("trajectory-atlas.angle-step", 2.0);
+
+        int angleCount = (int) Math.floor((maxAngle - minAngle) / angleStep) + 1;
+        this.angles = new double[angleCount];
+        for (int i = 0; i < angleCount; i++) {
+            angles[i] = Math.toRadians(minAngle + i * angleStep);
+        }
+
+        this.velocityStep = plugin.getConfig().getDouble("trajectory-atlas.velocity-step", 0.025);
+        this.maxDistance = plugin.getConfig().getDouble("trajectory-atlas.max-distance", 200);
+        this.minHeight = -maxDistance * plugin.getConfig().getDouble("height-ratio", 0.2) - 10;
+        this.cacheToDisk = plugin.getConfig().getBoolean("trajectory-atlas.cache-to-disk", true);
+    }
+
+    public TrajectoryAtlas load(String name, MotionModel model, double maxVelocity) {
+        long signature = signatureOf(model, maxVelocity);
+        File file = new File(plugin.getDataFolder(), "atlas/" + name + ".bin");
+
+        if (cacheToDisk) {
+            try {
+                TrajectoryAtlas mapped = TrajectoryAtlas.map(file, signature);
+                if (mapped != null) {
+                    plugin.getLogger().info("Mapped trajectory atlas " + name + " from " + file.getName());
+                    return mapped;
+                }
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to map trajectory atlas " + name + ": " + e.getMessage());
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        TrajectoryAtlas atlas = TrajectoryAtlas.build(model, signature, angles,
+                velocityStep, maxVelocity, velocityStep, maxDistance, minHeight);
+        plugin.getLogger().info("Built trajectory atlas " + name + ": " +
+                atlas.getAngleCount() * atlas.getVelocityCount() + " arcs in " +
+                (System.currentTimeMillis() - start) + " ms");
+
+        if (cacheToDisk) {
+            try {
+                atlas.save(file);
+                TrajectoryAtlas mapped = TrajectoryAtlas.map(file, signature);
+                if (mapped != null) {
+                    return mapped;
+                }
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to save trajectory atlas " + name + ": " + e.getMessage());
+            }
+        }
+
+        return atlas;
+    }
+
+    private long signatureOf(MotionModel model, double maxVelocity) {
+        long hash = model.signature();
+        hash = hash * 31 + Arrays.hashCode(angles);
+        hash = hash * 31 + Double.doubleToLongBits(velocityStep);
+        hash = hash * 31 + Double.doubleToLongBits(maxVelocity);
+        hash = hash * 31 + Double.doubleToLongBits(maxDistance);
+        return hash * 31 + Double.doubleToLongBits(minHeight);
+    }
+}
@@ -0,0 +1,130 @@
+package org.yudev.airtillery;
+
+import org.bukkit.World;
+
+/**
+ * Точки одного залпа в параллельных массивах: координаты цели, горизонтальная дальность,
+ * перепад высот, угол и скорость запуска. Залп любого размера занимает несколько массивов
+ * вместо отдельного объекта с Location на каждую точку
+ */
+public class VolleyPlan {
+    /**
+     * Скорость запуска известна: найдена оптимизатором или получена от Python-сервера
+     */
+    public static final byte FLAG_RESOLVED = 1;
+
+    private final World world;
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+    private final double[] horizontalDistance;
+    private final double[] heightDifference;
+    private final double[] angle;
+    private final double[] velocity;
+    private final byte[] flags;
+    private int size = 0;
+
+    public VolleyPlan(World world, int capacity) {
+        this.world = world;
+        this.x = new double[capacity];
+        this.y = new double[capacity];
+        this.z = new double[capacity];
+        this.horizontalDistance = new double[capacity];
+        this.heightDifference = new double[capacity];
+        this.angle = new double[capacity];
+        this.velocity = new double[capacity];
+        this.flags = new byte[capacity];
+    }
+
+    /**
+     * @return индекс добавленной точки
+     */
+    public int add(double x, double y, double z, double horizontalDistance, double heightDifference,
+                   double angleRadians) {
+        int i = size++;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.z[i] = z;
+        this.horizontalDistance[i] = horizontalDistance;
+        this.heightDifference[i] = heightDifference;
+        this.angle[i] = angleRadians;
+        return i;
+    }
+
+    public void setVelocity(int i, double velocity) {
+        this.velocity[i] = velocity;
+        flags[i] |= FLAG_RESOLVED;
+    }
+
+    public boolean isResolved(int i) {
+        return (flags[i] & FLAG_RESOLVED) != 0;
+    }
+
+    public int countUnresolved() {
+        int unresolved = 0;
+        for (int i = 0; i < size; i++) {
+            if (!isResolved(i)) {
+                unresolved++;
+            }
+        }
+        return unresolved;
+    }
+
+    /**
+     * Оставляет только точки с keep[i] == true, сохраняя их порядок
+     */
+    public void retain(boolean[] keep) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!keep[i]) {
+                continue;
+            }
+            x[kept] = x[i];
+            y[kept] = y[i];
+            z[kept] = z[i];
+            horizontalDistance[kept] = horizontalDistance[i];
+            heightDifference[kept] = heightDifference[i];
+            angle[kept] = angle[i];
+            velocity[kept] = velocity[i];
+            flags[kept] = flags[i];
+            kept++;
+        }
+        size = kept;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getX(int i) {
+        return x[i];
+    }
+
+    public double getY(int i) {
+        return y[i];
+    }
+
+    public double getZ(int i) {
+        return z[i];
+    }
+
+    public double getHorizontalDistance(int i) {
+        return horizontalDistance[i];
+    }
+
+    public double getHeightDifference(int i) {
+        return heightDifference[i];
+    }
+
+    public double getAngleRadians(int i) {
+        return angle[i];
+    }
+
+    public double getVelocity(int i) {
+        return velocity[i];
+    }
+}
@@ -0,0 +1,178 @@
+package org.yudev.airtillery;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+/**
+ * Очередь запусков для всех залпов одного {@link ArtilleryRegion}. Каждый тик выпускается не больше
+ * заданного числа снарядов и не дольше заданного времени; стрелки обслуживаются по кругу,
+ * по одному снаряду за проход, чтобы один большой залп не задерживал остальных.
+ * Залп, упершийся в {@link InFlightBudget}, ждет, пока в полете не освободится место.
+ * Невыпущенные снаряды остаются зарезервированными в том же бюджете, чтобы лимиты учитывали
+ * очереди всех регионов
+ */
+public class VolleyScheduler {
+    private final ArtilleryRegion region;
+    private final InFlightBudget budget;
+    private final int maxSpawnsPerTick;
+    private final long maxTickNanos;
+
+    private final Map<UUID, ArrayDeque<Volley>> queues = new HashMap<>();
+    private final List<UUID> shooters = new ArrayList<>();
+    private int rotation = 0;
+    private long currentTick = 0;
+    private ArtilleryScheduler.Task task;
+
+    public VolleyScheduler(ArtilleryPlugin plugin, ArtilleryRegion region, InFlightBudget budget) {
+        this.region = region;
+        this.budget = budget;
+        this.maxSpawnsPerTick = Math.max(1, plugin.getConfig().getInt("volley-scheduler.max-spawns-per-tick", 40));
+        this.maxTickNanos = plugin.getConfig().getLong("volley-scheduler.max-tick-us", 3000) * 1000;
+    }
+
+    /**
+     * Невыпущенные снаряды залпа уже должны быть зарезервированы в бюджете при допуске залпа:
+     * очередь снимает резерв по одному снаряду при запуске
+     */
+    public void submit(Volley volley) {
+        if (volley.remaining() == 0) {
+            volley.onComplete.run();
+            return;
+        }
+
+        UUID shooter = volley.shooter.getUniqueId();
+        ArrayDeque<Volley> queue = queues.get(shooter);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            queues.put(shooter, queue);
+            shooters.add(shooter);
+        }
+
+        volley.nextTick = currentTick;
+        queue.add(volley);
+
+        if (task == null) {
+            task = region.runTimer(this::tick, 0L, 1L);
+        }
+    }
+
+    public boolean isEmpty() {
+        return shooters.isEmpty();
+    }
+
+    public void clear() {
+        for (ArrayDeque<Volley> queue : queues.values()) {
+            unreserve(queue);
+        }
+        queues.clear();
+        shooters.clear();
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private void tick() {
+        currentTick++;
+
+        long deadline = System.nanoTime() + maxTickNanos;
+        int spawned = 0;
+        boolean progress = true;
+
+        while (progress && spawned < maxSpawnsPerTick && System.nanoTime() < deadline) {
+            progress = false;
+
+            for (int n = shooters.size(), k = 0; k < n && !shooters.isEmpty(); k++) {
+                if (rotation >= shooters.size()) {
+                    rotation = 0;
+                }
+
+                UUID shooter = shooters.get(rotation);
+                ArrayDeque<Volley> queue = queues.get(shooter);
+                Volley volley = queue.peek();
+
+                if (!volley.shooter.isActive()) {
+                    unreserve(queue);
+                    queues.remove(shooter);
+                    shooters.remove(rotation);
+                    continue;
+                }
+
+                rotation++;
+
+                if (volley.nextTick > currentTick || !budget.hasCapacity(shooter, volley.worldId)) {
+                    continue;
+                }
+
+                budget.unreserve(shooter, volley.worldId, 1);
+                volley.launchNext(currentTick);
+                spawned++;
+                progress = true;
+
+                if (volley.remaining() == 0) {
+                    queue.poll();
+                    volley.onComplete.run();
+
+                    if (queue.isEmpty()) {
+                        queues.remove(shooter);
+                        shooters.remove(--rotation);
+                    }
+                }
+
+                if (spawned >= maxSpawnsPerTick || System.nanoTime() >= deadline) {
+                    break;
+                }
+            }
+        }
+
+        if (shooters.isEmpty()) {
+            task.cancel();
+            task = null;
+            rotation = 0;
+        }
+    }
+
+    private void unreserve(ArrayDeque<Volley> queue) {
+        for (Volley volley : queue) {
+            budget.unreserve(volley.shooter.getUniqueId(), volley.worldId, volley.remaining());
+        }
+    }
+
+    /**
+     * Залп одного стрелка: точки плана запускаются по порядку с интервалом interval тиков
+     */
+    public static class Volley {
+        private final ArtilleryShooter shooter;
+        private final UUID worldId;
+        private final VolleyPlan plan;
+        private final int interval;
+        private final IntConsumer launcher;
+        private final Runnable onComplete;
+        private int index = 0;
+        private long nextTick;
+
+        public Volley(ArtilleryShooter shooter, VolleyPlan plan, int interval,
+                      IntConsumer launcher, Runnable onComplete) {
+            this.shooter = shooter;
+            this.worldId = plan.getWorld().getUID();
+            this.plan = plan;
+            this.interval = interval;
+            this.launcher = launcher;
+            this.onComplete = onComplete;
+        }
+
+        private void launchNext(long tick) {
+            launcher.accept(index++);
+            nextTick = tick + interval;
+        }
+
+        public int remaining() {
+            return plan.size() - index;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.yudev.ballistics;
+
+/**
+ * Физические константы снарядов (блоки/тик) из таблицы игровой физики
+ */
+public enum BallisticProfile implements MotionModel {
+    ARROW(0.05, 0.01, false, 5.0, true),
+    POTION(0.05, 0.01, true, 3.0, true),
+    TRIDENT(0.05, 0.01, false, 5.0, true),
+    TNT(0.035, 0.02, true, 4.0, false);
+
+    private final double gravity;
+    private final double drag;
+    private final boolean dragBeforeAcceleration;
+    private final double maxVelocity;
+    private final boolean simulationAccurate;
+
+    BallisticProfile(double gravity, double drag, boolean dragBeforeAcceleration,
+                     double maxVelocity, boolean simulationAccurate) {
+        this.gravity = gravity;
+        this.drag = drag;
+        this.dragBeforeAcceleration = dragBeforeAcceleration;
+        this.maxVelocity = maxVelocity;
+        this.simulationAccurate = simulationAccurate;
+    }
+
+    public double getGravity() {
+        return gravity;
+    }
+
+    public double getDrag() {
+        return drag;
+    }
+
+    public boolean isDragBeforeAcceleration() {
+        return dragBeforeAcceleration;
+    }
+
+    public double getMaxVelocity() {
+        return maxVelocity;
+    }
+
+    @Override
+    public void advance(double[] velocity) {
+        double dragFactor = 1.0 - drag;
+
+        if (dragBeforeAcceleration) {
+            velocity[0] *= dragFactor;
+            velocity[1] = velocity[1] * dragFactor - gravity;
+        } else {
+            velocity[0] *= dragFactor;
+            velocity[1] = (velocity[1] - gravity) * dragFactor;
+        }
+    }
+
+    /**
+     * Зависит только от физики, без имени: снаряды с одинаковыми коэффициентами делят один атлас
+     */
+    @Override
+    public long signature() {
+        long hash = Double.doubleToLongBits(gravity);
+        hash = hash * 31 + Double.doubleToLongBits(drag);
+        return hash * 31 + (dragBeforeAcceleration ? 1 : 0);
+    }
+
+    /**
+     * TNT не следует табличной модели сопротивления, поэтому для него симуляция неточна
+     */
+    public boolean isSimulationAccurate() {
+        return simulationAccurate;
+    }
+
+    public static BallisticProfile fromProjectileType(String projectileType) {
+        switch (projectileType.toUpperCase()) {
+            case "ARROW":
+            case "FLAMING_ARROW":
+                return ARROW;
+            case "SPLASH_POTION":
+            case "LINGERING_POTION":
+            case "POTION":
+                return POTION;
+            case "TRIDENT":
+                return TRIDENT;
+            case "TNT":
+                return TNT;
+            default:
+                return null;
+        }
+    }
+}
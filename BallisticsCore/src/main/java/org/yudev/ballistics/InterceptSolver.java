@@ -0,0 +1,110 @@
+package org.yudev.ballistics;
+
+/**
+ * Точка упреждения по движущейся цели: время полета и предсказанное положение цели
+ * уточняются друг по другу, пока время полета не перестанет меняться
+ */
+public class InterceptSolver {
+    private static final int MAX_ITERATIONS = 10;
+    private static final double TOLERANCE_TICKS = 0.25;
+
+    /**
+     * Время полета до точки на горизонтальной дистанции dL и перепаде высот dH; NaN, если она недостижима
+     */
+    public interface FlightTime {
+        double ticks(double horizontalDistance, double heightDifference);
+    }
+
+    private final double maxLeadTicks;
+
+    public InterceptSolver(double maxLeadTicks) {
+        this.maxLeadTicks = maxLeadTicks;
+    }
+
+    /**
+     * @param velocityX скорость цели по X, блоков/тик
+     * @param velocityZ скорость цели по Z, блоков/тик
+     * @param delayTicks задержка между расчетом и выстрелом
+     * @return решение или null, если время полета не удалось оценить
+     */
+    public Intercept solve(double launchX, double launchY, double launchZ,
+                           double targetX, double targetY, double targetZ,
+                           double velocityX, double velocityZ, double delayTicks,
+                           FlightTime flightTime) {
+        double aimX = targetX;
+        double aimZ = targetZ;
+        double heightDifference = targetY - launchY;
+
+        double ticks = flightTime.ticks(Math.hypot(aimX - launchX, aimZ - launchZ), heightDifference);
+        if (Double.isNaN(ticks)) {
+            return null;
+        }
+
+        boolean converged = false;
+        int iteration = 0;
+
+        while (iteration < MAX_ITERATIONS) {
+            iteration++;
+
+            double lead = Math.min(maxLeadTicks, ticks + delayTicks);
+            aimX = targetX + velocityX * lead;
+            aimZ = targetZ + velocityZ * lead;
+
+            double nextTicks = flightTime.ticks(Math.hypot(aimX - launchX, aimZ - launchZ), heightDifference);
+            if (Double.isNaN(nextTicks)) {
+                return null;
+            }
+
+            boolean settled = Math.abs(nextTicks - ticks) < TOLERANCE_TICKS;
+            ticks = nextTicks;
+            if (settled) {
+                converged = true;
+                break;
+            }
+        }
+
+        return new Intercept(aimX, targetY, aimZ, ticks, iteration, converged);
+    }
+
+    public static class Intercept {
+        private final double x;
+        private final double y;
+        private final double z;
+        private final double flightTicks;
+        private final int iterations;
+        private final boolean converged;
+
+        public Intercept(double x, double y, double z, double flightTicks, int iterations, boolean converged) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.flightTicks = flightTicks;
+            this.iterations = iterations;
+            this.converged = converged;
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        public double getZ() {
+            return z;
+        }
+
+        public double getFlightTicks() {
+            return flightTicks;
+        }
+
+        public int getIterations() {
+            return iterations;
+        }
+
+        public boolean isConverged() {
+            return converged;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.yudev.ballistics;
+
+import org.yudev.ballistics.TrajectoryKernel.Trace;
+
+/**
+ * Подбирает пару (угол, скорость) с минимальным временем полета до точки (dL, dH)
+ * при ограничении скорости и минимальном запасе высоты над траекторией
+ */
+public class LaunchOptimizer {
+    private static final int MAX_TICKS = 600;
+    private static final int ANGLE_SAMPLES = 12;
+    private static final int ANGLE_REFINE_ITERATIONS = 8;
+    private static final int VELOCITY_ITERATIONS = 24;
+    private static final double MIN_VELOCITY = 0.05;
+
+    private final double minAngle;
+    private final double maxAngle;
+    private final double clearance;
+
+    public LaunchOptimizer(double minAngleRadians, double maxAngleRadians, double clearance) {
+        this.minAngle = minAngleRadians;
+        this.maxAngle = maxAngleRadians;
+        this.clearance = clearance;
+    }
+
+    /**
+     * @return решение или null, если цель недостижима при заданных ограничениях
+     */
+    public Solution solve(MotionModel model, double horizontalDistance, double heightDifference,
+                          double maxVelocity) {
+        if (horizontalDistance <= 0) {
+            return null;
+        }
+
+        Trace trace = new Trace();
+        double step = (maxAngle - minAngle) / ANGLE_SAMPLES;
+
+        double bestAngle = Double.NaN;
+        double bestVelocity = 0;
+        double bestTicks = Double.MAX_VALUE;
+        double bestApex = 0;
+        double lowerInfeasible = Double.NaN;
+
+        for (int i = 0; i <= ANGLE_SAMPLES; i++) {
+            double angle = minAngle + i * step;
+            double velocity = solveVelocity(model, angle, horizontalDistance, heightDifference, maxVelocity, trace);
+
+            if (!isFeasible(velocity, trace, heightDifference)) {
+                if (Double.isNaN(bestAngle)) {
+                    lowerInfeasible = angle;
+                }
+                continue;
+            }
+
+            if (trace.ticks < bestTicks) {
+                bestAngle = angle;
+                bestVelocity = velocity;
+                bestTicks = trace.ticks;
+                bestApex = trace.apex;
+            }
+        }
+
+        if (Double.isNaN(bestAngle)) {
+            return null;
+        }
+
+        // Время полета убывает с уменьшением угла, поэтому уточняем границу допустимой области снизу
+        if (!Double.isNaN(lowerInfeasible) && lowerInfeasible < bestAngle) {
+            double low = lowerInfeasible;
+            double high = bestAngle;
+
+            for (int i = 0; i < ANGLE_REFINE_ITERATIONS; i++) {
+                double angle = (low + high) / 2;
+                double velocity = solveVelocity(model, angle, horizontalDistance, heightDifference, maxVelocity, trace);
+
+                if (isFeasible(velocity, trace, heightDifference) && trace.ticks < bestTicks) {
+                    bestAngle = angle;
+                    bestVelocity = velocity;
+                    bestTicks = trace.ticks;
+                    bestApex = trace.apex;
+                    high = angle;
+                } else {
+                    low = angle;
+                }
+            }
+        }
+
+        return new Solution(bestAngle, bestVelocity, bestTicks, bestApex);
+    }
+
+    /**
+     * То же, что и {@link #solve(MotionModel, double, double, double)}, но по заранее просчитанным
+     * дугам атласа: перебираются только углы сетки внутри [minAngle, maxAngle]
+     */
+    public Solution solve(TrajectoryAtlas atlas, double horizontalDistance, double heightDifference,
+                          double maxVelocity) {
+        if (horizontalDistance <= 0) {
+            return null;
+        }
+
+        double[] result = new double[3];
+        double bestAngle = Double.NaN;
+        double bestVelocity = 0;
+        double bestTicks = Double.MAX_VALUE;
+        double bestApex = 0;
+
+        for (int a = 0; a < atlas.getAngleCount(); a++) {
+            double angle = atlas.getAngle(a);
+            if (angle < minAngle - 1e-9 || angle > maxAngle + 1e-9) {
+                continue;
+            }
+
+            if (!atlas.solveVelocity(a, horizontalDistance, heightDifference, maxVelocity, result)) {
+                continue;
+            }
+
+            if (result[2] - Math.max(0, heightDifference) < clearance) {
+                continue;
+            }
+
+            if (result[1] < bestTicks) {
+                bestAngle = angle;
+                bestVelocity = result[0];
+                bestTicks = result[1];
+                bestApex = result[2];
+            }
+        }
+
+        if (Double.isNaN(bestAngle)) {
+            return null;
+        }
+
+        return new Solution(bestAngle, bestVelocity, bestTicks, bestApex);
+    }
+
+    private boolean isFeasible(double velocity, Trace trace, double heightDifference) {
+        return !Double.isNaN(velocity) && trace.apex - Math.max(0, heightDifference) >= clearance;
+    }
+
+    private double solveVelocity(MotionModel model, double angle, double horizontalDistance,
+                                 double heightDifference, double maxVelocity, Trace trace) {
+        if (simulate(model, angle, maxVelocity, horizontalDistance, trace) < heightDifference) {
+            return Double.NaN;
+        }
+
+        double low = MIN_VELOCITY;
+        double high = maxVelocity;
+
+        for (int i = 0; i < VELOCITY_ITERATIONS; i++) {
+            double mid = (low + high) / 2;
+            if (simulate(model, angle, mid, horizontalDistance, trace) >= heightDifference) {
+                high = mid;
+            } else {
+                low = mid;
+            }
+        }
+
+        simulate(model, angle, high, horizontalDistance, trace);
+        return high;
+    }
+
+    private double simulate(MotionModel model, double angle, double velocity,
+                            double horizontalDistance, Trace trace) {
+        return TrajectoryKernel.heightAt(model, angle, velocity, horizontalDistance, MAX_TICKS, trace);
+    }
+
+    public static class Solution {
+        private final double angleRadians;
+        private final double velocity;
+        private final double flightTicks;
+        private final double apexHeight;
+
+        public Solution(double angleRadians, double velocity, double flightTicks, double apexHeight) {
+            this.angleRadians = angleRadians;
+            this.velocity = velocity;
+            this.flightTicks = flightTicks;
+            this.apexHeight = apexHeight;
+        }
+
+        public double getAngleRadians() {
+            return angleRadians;
+        }
+
+        public double getVelocity() {
+            return velocity;
+        }
+
+        public double getFlightTicks() {
+            return flightTicks;
+        }
+
+        public double getApexHeight() {
+            return apexHeight;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.yudev.ballistics;
+
+/**
+ * Покадровое обновление скорости снаряда в вертикальной плоскости
+ */
+public interface MotionModel {
+
+    /**
+     * @param velocity {горизонтальная, вертикальная} скорость в блоках/тик, изменяется на месте
+     */
+    void advance(double[] velocity);
+
+    /**
+     * Переводит скорость запуска в перемещение за первый тик. По умолчанию они совпадают;
+     * модели, снятые по записям, могут учитывать, что сервер успевает обсчитать первый тик до замера
+     *
+     * @param velocity {горизонтальная, вертикальная} скорость запуска, изменяется на месте
+     */
+    default void launch(double[] velocity) {
+    }
+
+    /**
+     * Отпечаток коэффициентов модели; меняется вместе с ними и используется для проверки кэша атласа
+     */
+    long signature();
+}
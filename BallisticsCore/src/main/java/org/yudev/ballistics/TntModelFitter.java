@@ -0,0 +1,364 @@
+package org.yudev.ballistics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Подбирает коэффициенты {@link TntMotionModel} методом наименьших квадратов
+ * по CSV-файлам плагина TrajectoryRecorder.
+ * Запись начинается через тик после появления TNT, поэтому первое перемещение берется от точки запуска,
+ * а шаг запуска подбирается отдельно по записанной скорости и углу выстрела
+ */
+public class TntModelFitter {
+    private static final double[] VERTICAL_BREAKS = {-1.5, -0.5, 0.0, 0.5};
+    private static final int MIN_SEGMENT_SAMPLES = 20;
+    private static final int MIN_LAUNCH_SAMPLES = 3;
+    private static final double MIN_DISPLACEMENT = 0.01;
+
+    /**
+     * @return подобранная модель или null, если в каталоге нет траекторий TNT
+     */
+    public TntMotionModel fit(File directory) throws IOException {
+        List<Recording> trajectories = readTrajectories(directory);
+        if (trajectories.isEmpty()) {
+            return null;
+        }
+
+        int segments = VERTICAL_BREAKS.length + 1;
+        double[] horizontalSquares = new double[segments];
+        double[] horizontalProducts = new double[segments];
+        double[] verticalSum = new double[segments];
+        double[] verticalSquares = new double[segments];
+        double[] nextVerticalSum = new double[segments];
+        double[] verticalProducts = new double[segments];
+        int[] counts = new int[segments];
+
+        double launchHorizontalSquares = 0;
+        double launchHorizontalProducts = 0;
+        double launchVerticalSum = 0;
+        double launchVerticalSquares = 0;
+        double firstVerticalSum = 0;
+        double launchVerticalProducts = 0;
+        int launchCount = 0;
+
+        double maxVelocity = 0;
+
+        for (Recording recording : trajectories) {
+            double[][] velocities = recording.displacements;
+
+            if (recording.hasLaunch()) {
+                double horizontal = recording.launchHorizontal;
+                double vertical = recording.launchVertical;
+                maxVelocity = Math.max(maxVelocity, Math.hypot(horizontal, vertical));
+
+                launchHorizontalSquares += horizontal * horizontal;
+                launchHorizontalProducts += horizontal * velocities[0][0];
+                launchVerticalSum += vertical;
+                launchVerticalSquares += vertical * vertical;
+                firstVerticalSum += velocities[0][1];
+                launchVerticalProducts += vertical * velocities[0][1];
+                launchCount++;
+            } else {
+                maxVelocity = Math.max(maxVelocity, Math.hypot(velocities[0][0], velocities[0][1]));
+            }
+
+            for (int i = 0; i + 1 < velocities.length; i++) {
+                double horizontal = velocities[i][0];
+                double vertical = velocities[i][1];
+                double nextHorizontal = velocities[i + 1][0];
+                double nextVertical = velocities[i + 1][1];
+
+                int segment = segmentOf(vertical);
+                horizontalSquares[segment] += horizontal * horizontal;
+                horizontalProducts[segment] += horizontal * nextHorizontal;
+                verticalSum[segment] += vertical;
+                verticalSquares[segment] += vertical * vertical;
+                nextVerticalSum[segment] += nextVertical;
+                verticalProducts[segment] += vertical * nextVertical;
+                counts[segment]++;
+            }
+        }
+
+        TntMotionModel fallback = fallbackModel(maxVelocity, Double.NaN);
+        double[] horizontalFactors = fallback.getHorizontalFactors().clone();
+        double[] verticalFactors = fallback.getVerticalFactors().clone();
+        double[] verticalOffsets = fallback.getVerticalOffsets().clone();
+
+        for (int segment = 0; segment < segments; segment++) {
+            int n = counts[segment];
+            if (n < MIN_SEGMENT_SAMPLES) {
+                continue;
+            }
+
+            if (horizontalSquares[segment] > 0) {
+                horizontalFactors[segment] = horizontalProducts[segment] / horizontalSquares[segment];
+            }
+
+            double denominator = n * verticalSquares[segment] - verticalSum[segment] * verticalSum[segment];
+            if (Math.abs(denominator) > 1e-12) {
+                verticalFactors[segment] = (n * verticalProducts[segment]
+                        - verticalSum[segment] * nextVerticalSum[segment]) / denominator;
+                verticalOffsets[segment] = (nextVerticalSum[segment]
+                        - verticalFactors[segment] * verticalSum[segment]) / n;
+            }
+        }
+
+        double launchHorizontalFactor = fallback.getLaunchHorizontalFactor();
+        double launchVerticalFactor = fallback.getLaunchVerticalFactor();
+        double launchVerticalOffset = fallback.getLaunchVerticalOffset();
+
+        if (launchCount >= MIN_LAUNCH_SAMPLES) {
+            if (launchHorizontalSquares > 0) {
+                launchHorizontalFactor = launchHorizontalProducts / launchHorizontalSquares;
+            }
+
+            double denominator = launchCount * launchVerticalSquares - launchVerticalSum * launchVerticalSum;
+            if (Math.abs(denominator) > 1e-9) {
+                launchVerticalFactor = (launchCount * launchVerticalProducts
+                        - launchVerticalSum * firstVerticalSum) / denominator;
+                launchVerticalOffset = (firstVerticalSum - launchVerticalFactor * launchVerticalSum) / launchCount;
+            } else {
+                // Все выстрелы под одним углом и с одной скоростью: подбираем только смещение
+                launchVerticalOffset = (firstVerticalSum - launchVerticalFactor * launchVerticalSum) / launchCount;
+            }
+        }
+
+        TntMotionModel model = new TntMotionModel(VERTICAL_BREAKS.clone(), horizontalFactors,
+                verticalFactors, verticalOffsets, launchHorizontalFactor, launchVerticalFactor,
+                launchVerticalOffset, maxVelocity, 0);
+
+        return new TntMotionModel(VERTICAL_BREAKS.clone(), horizontalFactors, verticalFactors,
+                verticalOffsets, launchHorizontalFactor, launchVerticalFactor, launchVerticalOffset,
+                maxVelocity, measureLandingError(model, trajectories));
+    }
+
+    /**
+     * Табличная модель TNT в виде кусочной модели, используется для участков без данных.
+     * Ванильный TNT в первый тик применяет гравитацию до перемещения, а сопротивление - после
+     */
+    private TntMotionModel fallbackModel(double maxVelocity, double landingError) {
+        int segments = VERTICAL_BREAKS.length + 1;
+        double dragFactor = 1.0 - BallisticProfile.TNT.getDrag();
+        double[] horizontalFactors = new double[segments];
+        double[] verticalFactors = new double[segments];
+        double[] verticalOffsets = new double[segments];
+
+        for (int segment = 0; segment < segments; segment++) {
+            horizontalFactors[segment] = dragFactor;
+            verticalFactors[segment] = dragFactor;
+            verticalOffsets[segment] = -BallisticProfile.TNT.getGravity();
+        }
+
+        return new TntMotionModel(VERTICAL_BREAKS.clone(), horizontalFactors, verticalFactors,
+                verticalOffsets, 1.0, 1.0, -BallisticProfile.TNT.getGravity(), maxVelocity, landingError);
+    }
+
+    /**
+     * Средний промах точки приземления при повторе записей моделью. Записи с известной скоростью
+     * запуска проигрываются от нее через шаг запуска, как это делает {@link TrajectoryKernel};
+     * остальные учитываются, только если таких записей нет
+     */
+    private double measureLandingError(TntMotionModel model, List<Recording> trajectories) {
+        boolean anyLaunch = false;
+        for (Recording recording : trajectories) {
+            anyLaunch |= recording.hasLaunch();
+        }
+
+        double totalError = 0;
+        int count = 0;
+        double[] velocity = new double[2];
+
+        for (Recording recording : trajectories) {
+            if (anyLaunch && !recording.hasLaunch()) {
+                continue;
+            }
+
+            double[][] recorded = recording.displacements;
+            double recordedX = 0;
+            double recordedY = 0;
+            for (double[] step : recorded) {
+                recordedX += step[0];
+                recordedY += step[1];
+            }
+
+            if (recording.hasLaunch()) {
+                velocity[0] = recording.launchHorizontal;
+                velocity[1] = recording.launchVertical;
+                model.launch(velocity);
+            } else {
+                velocity[0] = recorded[0][0];
+                velocity[1] = recorded[0][1];
+            }
+
+            double x = 0;
+            double y = 0;
+            for (int i = 0; i < recorded.length; i++) {
+                x += velocity[0];
+                y += velocity[1];
+                model.advance(velocity);
+            }
+
+            totalError += Math.hypot(x - recordedX, y - recordedY);
+            count++;
+        }
+
+        return totalError / count;
+    }
+
+    private List<Recording> readTrajectories(File directory) throws IOException {
+        List<Recording> trajectories = new ArrayList<>();
+
+        File[] files = directory.listFiles((dir, name) -> name.startsWith("TNT_") && name.endsWith(".csv"));
+        if (files == null) {
+            return trajectories;
+        }
+
+        for (File file : files) {
+            Recording recording = readRecording(file);
+            if (recording != null) {
+                trajectories.add(recording);
+            }
+        }
+
+        return trajectories;
+    }
+
+    /**
+     * Читает траекторию как последовательность перемещений за тик {горизонтальное, вертикальное},
+     * начиная с перемещения от точки запуска до первой записанной позиции
+     */
+    private Recording readRecording(File file) throws IOException {
+        List<double[]> positions = new ArrayList<>();
+        double[] firstOffset = null;
+        double launchSpeed = -1;
+        double launchAngle = 0;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String header = reader.readLine();
+            if (header == null) {
+                return null;
+            }
+
+            String[] columns = header.split(",");
+            int xIndex = indexOf(columns, "x");
+            int yIndex = indexOf(columns, "y");
+            int zIndex = indexOf(columns, "z");
+            if (xIndex < 0 || yIndex < 0 || zIndex < 0) {
+                return null;
+            }
+            int distanceIndex = indexOf(columns, "horizontal_distance");
+            int heightIndex = indexOf(columns, "height_difference");
+            int speedIndex = indexOf(columns, "velocity");
+            int angleIndex = indexOf(columns, "angle_radians");
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split(",");
+                if (values.length <= Math.max(xIndex, Math.max(yIndex, zIndex))) {
+                    continue;
+                }
+                try {
+                    positions.add(new double[]{
+                            Double.parseDouble(values[xIndex]),
+                            Double.parseDouble(values[yIndex]),
+                            Double.parseDouble(values[zIndex])
+                    });
+
+                    if (positions.size() == 1) {
+                        if (distanceIndex >= 0 && heightIndex >= 0 &&
+                                values.length > Math.max(distanceIndex, heightIndex)) {
+                            firstOffset = new double[]{
+                                    Double.parseDouble(values[distanceIndex]),
+                                    Double.parseDouble(values[heightIndex])
+                            };
+                        }
+                        if (speedIndex >= 0 && angleIndex >= 0 && values.length > Math.max(speedIndex, angleIndex)) {
+                            launchSpeed = Double.parseDouble(values[speedIndex]);
+                            launchAngle = Double.parseDouble(values[angleIndex]);
+                        }
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+
+        // Отбрасываем хвост, где TNT уже лежит на земле
+        int end = positions.size() - 1;
+        while (end > 0 && distance(positions.get(end - 1), positions.get(end)) < MIN_DISPLACEMENT) {
+            end--;
+        }
+
+        if (end < 3) {
+            return null;
+        }
+
+        int first = firstOffset != null ? 1 : 0;
+        double[][] displacements = new double[end + first][];
+        if (firstOffset != null) {
+            displacements[0] = firstOffset;
+        }
+        for (int i = 0; i < end; i++) {
+            double[] from = positions.get(i);
+            double[] to = positions.get(i + 1);
+            displacements[i + first] = new double[]{
+                    Math.hypot(to[0] - from[0], to[2] - from[2]),
+                    to[1] - from[1]
+            };
+        }
+
+        // Без смещения от точки запуска скорость запуска не с чем сопоставить
+        if (firstOffset == null || launchSpeed <= 0) {
+            return new Recording(displacements, Double.NaN, Double.NaN);
+        }
+
+        return new Recording(displacements,
+                launchSpeed * Math.cos(launchAngle), launchSpeed * Math.sin(launchAngle));
+    }
+
+    private static int segmentOf(double verticalVelocity) {
+        int segment = 0;
+        while (segment < VERTICAL_BREAKS.length && verticalVelocity >= VERTICAL_BREAKS[segment]) {
+            segment++;
+        }
+        return segment;
+    }
+
+    private static double distance(double[] a, double[] b) {
+        double dx = a[0] - b[0];
+        double dy = a[1] - b[1];
+        double dz = a[2] - b[2];
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    private static int indexOf(String[] columns, String name) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].trim().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Записанная траектория: перемещения за тик и скорость запуска, если она известна
+     */
+    private static final class Recording {
+        private final double[][] displacements;
+        private final double launchHorizontal;
+        private final double launchVertical;
+
+        Recording(double[][] displacements, double launchHorizontal, double launchVertical) {
+            this.displacements = displacements;
+            this.launchHorizontal = launchHorizontal;
+            this.launchVertical = launchVertical;
+        }
+
+        boolean hasLaunch() {
+            return !Double.isNaN(launchHorizontal);
+        }
+    }
+}
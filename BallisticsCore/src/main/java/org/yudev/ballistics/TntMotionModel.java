@@ -0,0 +1,117 @@
+package org.yudev.ballistics;
+
+import java.util.Arrays;
+
+/**
+ * Эмпирическая кусочно-линейная модель полета TNT, подобранная по записанным траекториям.
+ * Участок выбирается по текущей вертикальной скорости:
+ * vh' = kh * vh, vy' = kv * vy + bv.
+ * Первое перемещение получается из скорости запуска отдельным шагом запуска того же вида:
+ * запись начинается через тик после появления TNT, и этот тик уже обсчитан сервером
+ */
+public class TntMotionModel implements MotionModel {
+    private final double[] verticalBreaks;
+    private final double[] horizontalFactors;
+    private final double[] verticalFactors;
+    private final double[] verticalOffsets;
+    private final double launchHorizontalFactor;
+    private final double launchVerticalFactor;
+    private final double launchVerticalOffset;
+    private final double maxFittedVelocity;
+    private final double landingError;
+
+    public TntMotionModel(double[] verticalBreaks, double[] horizontalFactors, double[] verticalFactors,
+                          double[] verticalOffsets, double launchHorizontalFactor, double launchVerticalFactor,
+                          double launchVerticalOffset, double maxFittedVelocity, double landingError) {
+        if (horizontalFactors.length != verticalBreaks.length + 1
+                || verticalFactors.length != horizontalFactors.length
+                || verticalOffsets.length != horizontalFactors.length) {
+            throw new IllegalArgumentException("TNT model must have one more segment than breakpoints");
+        }
+
+        this.verticalBreaks = verticalBreaks;
+        this.horizontalFactors = horizontalFactors;
+        this.verticalFactors = verticalFactors;
+        this.verticalOffsets = verticalOffsets;
+        this.launchHorizontalFactor = launchHorizontalFactor;
+        this.launchVerticalFactor = launchVerticalFactor;
+        this.launchVerticalOffset = launchVerticalOffset;
+        this.maxFittedVelocity = maxFittedVelocity;
+        this.landingError = landingError;
+    }
+
+    @Override
+    public void advance(double[] velocity) {
+        int segment = segmentOf(velocity[1]);
+
+        velocity[0] *= horizontalFactors[segment];
+        velocity[1] = verticalFactors[segment] * velocity[1] + verticalOffsets[segment];
+    }
+
+    @Override
+    public void launch(double[] velocity) {
+        velocity[0] *= launchHorizontalFactor;
+        velocity[1] = launchVerticalFactor * velocity[1] + launchVerticalOffset;
+    }
+
+    private int segmentOf(double verticalVelocity) {
+        int segment = 0;
+        while (segment < verticalBreaks.length && verticalVelocity >= verticalBreaks[segment]) {
+            segment++;
+        }
+        return segment;
+    }
+
+    @Override
+    public long signature() {
+        long hash = Arrays.hashCode(verticalBreaks);
+        hash = hash * 31 + Arrays.hashCode(horizontalFactors);
+        hash = hash * 31 + Arrays.hashCode(verticalFactors);
+        hash = hash * 31 + Arrays.hashCode(verticalOffsets);
+        hash = hash * 31 + Double.hashCode(launchHorizontalFactor);
+        hash = hash * 31 + Double.hashCode(launchVerticalFactor);
+        return hash * 31 + Double.hashCode(launchVerticalOffset);
+    }
+
+    public double[] getVerticalBreaks() {
+        return verticalBreaks;
+    }
+
+    public double[] getHorizontalFactors() {
+        return horizontalFactors;
+    }
+
+    public double[] getVerticalFactors() {
+        return verticalFactors;
+    }
+
+    public double[] getVerticalOffsets() {
+        return verticalOffsets;
+    }
+
+    public double getLaunchHorizontalFactor() {
+        return launchHorizontalFactor;
+    }
+
+    public double getLaunchVerticalFactor() {
+        return launchVerticalFactor;
+    }
+
+    public double getLaunchVerticalOffset() {
+        return launchVerticalOffset;
+    }
+
+    /**
+     * Максимальная начальная скорость среди записанных траекторий; за ее пределами модель не проверена
+     */
+    public double getMaxFittedVelocity() {
+        return maxFittedVelocity;
+    }
+
+    /**
+     * Средняя ошибка конечной точки при повторном моделировании записанных траекторий, в блоках
+     */
+    public double getLandingError() {
+        return landingError;
+    }
+}
@@ -0,0 +1,395 @@
+package org.yudev.ballistics;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Заранее просчитанные траектории для сетки (угол, скорость).
+ * Каждая дуга хранится как последовательность (x, y) по тикам в одном общем буфере float,
+ * поэтому поиск точки падения и времени полета сводится к бинарному поиску без симуляции.
+ */
+public class TrajectoryAtlas {
+    private static final int MAGIC = 0x41544C53;
+    private static final int VERSION = 1;
+    private static final int MAX_TICKS = 600;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final long signature;
+    private final double[] angles;
+    private final double minVelocity;
+    private final double velocityStep;
+    private final int velocityCount;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int[] apexTicks;
+    private final FloatBuffer points;
+
+    private TrajectoryAtlas(long signature, double[] angles, double minVelocity, double velocityStep,
+                            int velocityCount, int[] offsets, int[] lengths, int[] apexTicks,
+                            FloatBuffer points) {
+        this.signature = signature;
+        this.angles = angles;
+        this.minVelocity = minVelocity;
+        this.velocityStep = velocityStep;
+        this.velocityCount = velocityCount;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.apexTicks = apexTicks;
+        this.points = points;
+    }
+
+    /**
+     * Моделирует все дуги сетки. Дуга обрывается, когда уходит ниже minHeight или дальше maxDistance
+     */
+    public static TrajectoryAtlas build(MotionModel model, long signature, double[] angles,
+                                        double minVelocity, double maxVelocity, double velocityStep,
+                                        double maxDistance, double minHeight) {
+        int velocityCount = (int) Math.floor((maxVelocity - minVelocity) / velocityStep) + 1;
+        int arcCount = angles.length * velocityCount;
+
+        int[] offsets = new int[arcCount];
+        int[] lengths = new int[arcCount];
+        int[] apexTicks = new int[arcCount];
+
+        float[] buffer = new float[arcCount * 64];
+        float[] arc = new float[MAX_TICKS * 2];
+        int size = 0;
+        double[] velocity = new double[2];
+
+        for (int a = 0; a < angles.length; a++) {
+            double cos = Math.cos(angles[a]);
+            double sin = Math.sin(angles[a]);
+
+            for (int v = 0; v < velocityCount; v++) {
+                int index = a * velocityCount + v;
+                double speed = minVelocity + v * velocityStep;
+
+                int length = TrajectoryKernel.arc(model, speed * cos, speed * sin,
+                        maxDistance, minHeight, velocity, arc);
+
+                if (size + length * 2 > buffer.length) {
+                    float[] grown = new float[Math.max(buffer.length * 2, size + length * 2)];
+                    System.arraycopy(buffer, 0, grown, 0, size);
+                    buffer = grown;
+                }
+                System.arraycopy(arc, 0, buffer, size, length * 2);
+
+                int apexTick = 0;
+                for (int tick = 1; tick < length; tick++) {
+                    if (arc[tick * 2 + 1] > arc[apexTick * 2 + 1]) {
+                        apexTick = tick;
+                    }
+                }
+
+                offsets[index] = size;
+                lengths[index] = length;
+                apexTicks[index] = apexTick;
+                size += length * 2;
+            }
+        }
+
+        return new TrajectoryAtlas(signature, angles.clone(), minVelocity, velocityStep, velocityCount,
+                offsets, lengths, apexTicks, FloatBuffer.wrap(buffer, 0, size).slice());
+    }
+
+    public int getAngleCount() {
+        return angles.length;
+    }
+
+    public double getAngle(int angleIndex) {
+        return angles[angleIndex];
+    }
+
+    public int getVelocityCount() {
+        return velocityCount;
+    }
+
+    public double getVelocity(int velocityIndex) {
+        return minVelocity + velocityIndex * velocityStep;
+    }
+
+    public long getSignature() {
+        return signature;
+    }
+
+    public int arcIndex(int angleIndex, int velocityIndex) {
+        return angleIndex * velocityCount + velocityIndex;
+    }
+
+    public int getArcLength(int arc) {
+        return lengths[arc];
+    }
+
+    public float getX(int arc, int tick) {
+        return points.get(offsets[arc] + tick * 2);
+    }
+
+    public float getY(int arc, int tick) {
+        return points.get(offsets[arc] + tick * 2 + 1);
+    }
+
+    public float getApexHeight(int arc) {
+        return getY(arc, apexTicks[arc]);
+    }
+
+    /**
+     * Наибольшая высота дуги до дистанции distance. Если апогей дальше цели, снаряд
+     * приходит в нее снизу на восходящей ветви, и запас высоты над целью равен нулю
+     */
+    private double apexBefore(int arc, double distance, double heightAtDistance) {
+        return getX(arc, apexTicks[arc]) < distance ? getApexHeight(arc) : heightAtDistance;
+    }
+
+    public int nearestAngleIndex(double angleRadians) {
+        int best = 0;
+        for (int i = 1; i < angles.length; i++) {
+            if (Math.abs(angles[i] - angleRadians) < Math.abs(angles[best] - angleRadians)) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    public int nearestVelocityIndex(double velocity) {
+        int index = (int) Math.round((velocity - minVelocity) / velocityStep);
+        return Math.max(0, Math.min(velocityCount - 1, index));
+    }
+
+    /**
+     * Высота дуги на горизонтальной дистанции distance; NEGATIVE_INFINITY, если дуга туда не долетает
+     */
+    public double heightAt(int arc, double distance) {
+        int tick = crossingTick(arc, distance);
+        if (tick < 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+
+        double x0 = getX(arc, tick - 1);
+        double x1 = getX(arc, tick);
+        double fraction = x1 > x0 ? (distance - x0) / (x1 - x0) : 0;
+        return getY(arc, tick - 1) + (getY(arc, tick) - getY(arc, tick - 1)) * fraction;
+    }
+
+    /**
+     * Дробное число тиков до дистанции distance; POSITIVE_INFINITY, если дуга туда не долетает
+     */
+    public double ticksAt(int arc, double distance) {
+        int tick = crossingTick(arc, distance);
+        if (tick < 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double x0 = getX(arc, tick - 1);
+        double x1 = getX(arc, tick);
+        return tick - 1 + (x1 > x0 ? (distance - x0) / (x1 - x0) : 0);
+    }
+
+    /**
+     * Первый тик, на котором x >= distance, или -1
+     */
+    private int crossingTick(int arc, double distance) {
+        int length = lengths[arc];
+        if (length < 2 || getX(arc, length - 1) < distance) {
+            return -1;
+        }
+
+        int low = 1;
+        int high = length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getX(arc, mid) >= distance) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Минимальная скорость при угле angleIndex, с которой дуга проходит через (distance, height).
+     * Бинарный поиск по сетке скоростей с линейной интерполяцией между соседними дугами.
+     *
+     * @param result {скорость, тики, высота апогея}; не изменяется, если решения нет
+     * @return false, если даже максимальная скорость сетки не достает до цели
+     */
+    public boolean solveVelocity(int angleIndex, double distance, double height, double maxVelocity,
+                                 double[] result) {
+        int highest = Math.min(velocityCount - 1, (int) Math.floor((maxVelocity - minVelocity) / velocityStep));
+        if (highest < 0 || heightAt(arcIndex(angleIndex, highest), distance) < height) {
+            return false;
+        }
+
+        int low = 0;
+        int high = highest;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (heightAt(arcIndex(angleIndex, mid), distance) >= height) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+
+        int arc = arcIndex(angleIndex, low);
+        double upperHeight = heightAt(arc, distance);
+        double upperTicks = ticksAt(arc, distance);
+
+        double upperApex = apexBefore(arc, distance, upperHeight);
+
+        if (low == 0) {
+            result[0] = getVelocity(0);
+            result[1] = upperTicks;
+            result[2] = upperApex;
+            return true;
+        }
+
+        int lowerArc = arcIndex(angleIndex, low - 1);
+        double lowerHeight = heightAt(lowerArc, distance);
+        if (lowerHeight == Double.NEGATIVE_INFINITY || upperHeight <= lowerHeight) {
+            result[0] = getVelocity(low);
+            result[1] = upperTicks;
+            result[2] = upperApex;
+            return true;
+        }
+
+        double fraction = (height - lowerHeight) / (upperHeight - lowerHeight);
+        double lowerTicks = ticksAt(lowerArc, distance);
+        double lowerApex = apexBefore(lowerArc, distance, lowerHeight);
+        result[0] = getVelocity(low - 1) + velocityStep * fraction;
+        result[1] = lowerTicks + (upperTicks - lowerTicks) * fraction;
+        result[2] = lowerApex + (upperApex - lowerApex) * fraction;
+        return true;
+    }
+
+    /**
+     * Пишет атлас во временный файл и переносит его на место одним действием,
+     * чтобы сбой посреди записи не оставил файл с верным заголовком и обрезанными дугами
+     */
+    public void save(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        File temporary = new File(parent, file.getName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(signature);
+                out.writeInt(angles.length);
+                for (double angle : angles) {
+                    out.writeDouble(angle);
+                }
+                out.writeDouble(minVelocity);
+                out.writeDouble(velocityStep);
+                out.writeInt(velocityCount);
+                for (int i = 0; i < offsets.length; i++) {
+                    out.writeInt(offsets[i]);
+                    out.writeInt(lengths[i]);
+                    out.writeInt(apexTicks[i]);
+                }
+                out.writeInt(points.limit());
+                for (int i = 0; i < points.limit(); i++) {
+                    out.writeFloat(points.get(i));
+                }
+            }
+
+            try {
+                Files.move(temporary.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+
+    /**
+     * Отображает сохраненный атлас в память; точки траекторий остаются вне кучи
+     *
+     * @return атлас или null, если файл отсутствует, поврежден или построен для другой модели
+     */
+    public static TrajectoryAtlas map(File file, long expectedSignature) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                return null;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != expectedSignature) {
+                return null;
+            }
+
+            // Размеры таблиц сверяются с длиной файла до чтения: обрезанный файл не должен ронять загрузку
+            int angleCount = buffer.getInt();
+            if (angleCount < 0 ||
+                    buffer.remaining() < (long) angleCount * Double.BYTES + 2 * Double.BYTES + Integer.BYTES) {
+                return null;
+            }
+
+            double[] angles = new double[angleCount];
+            for (int i = 0; i < angles.length; i++) {
+                angles[i] = buffer.getDouble();
+            }
+            double minVelocity = buffer.getDouble();
+            double velocityStep = buffer.getDouble();
+            int velocityCount = buffer.getInt();
+
+            long arcCount = (long) angleCount * velocityCount;
+            if (velocityCount < 0 || buffer.remaining() < arcCount * 3 * Integer.BYTES + Integer.BYTES) {
+                return null;
+            }
+
+            int[] offsets = new int[(int) arcCount];
+            int[] lengths = new int[(int) arcCount];
+            int[] apexTicks = new int[(int) arcCount];
+            for (int i = 0; i < arcCount; i++) {
+                offsets[i] = buffer.getInt();
+                lengths[i] = buffer.getInt();
+                apexTicks[i] = buffer.getInt();
+            }
+
+            int pointCount = buffer.getInt();
+            if (pointCount < 0 || buffer.remaining() < (long) pointCount * Float.BYTES) {
+                return null;
+            }
+
+            for (int i = 0; i < arcCount; i++) {
+                if (offsets[i] < 0 || lengths[i] < 0 || apexTicks[i] < 0 ||
+                        (long) offsets[i] + (long) lengths[i] * 2 > pointCount) {
+                    return null;
+                }
+            }
+
+            ByteBuffer pointBytes = buffer.slice();
+            pointBytes.limit(pointCount * Float.BYTES);
+
+            return new TrajectoryAtlas(expectedSignature, angles, minVelocity, velocityStep, velocityCount,
+                    offsets, lengths, apexTicks, pointBytes.asFloatBuffer());
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.yudev.ballistics;
+
+/**
+ * Покадровая симуляция полета в вертикальной плоскости выстрела.
+ * Методы не выделяют память: состояние и результат передаются вызывающей стороной
+ */
+public final class TrajectoryKernel {
+
+    private TrajectoryKernel() {
+    }
+
+    /**
+     * Переиспользуемое состояние одного прогона
+     */
+    public static final class Trace {
+        final double[] velocity = new double[2];
+        double ticks;
+        double apex;
+
+        public double getTicks() {
+            return ticks;
+        }
+
+        public double getApex() {
+            return apex;
+        }
+    }
+
+    /**
+     * Высота траектории на дистанции distance; NEGATIVE_INFINITY, если снаряд туда не долетает.
+     * В trace записываются дробное время до этой дистанции и наибольшая высота до нее
+     */
+    public static double heightAt(MotionModel model, double angle, double speed, double distance,
+                                  int maxTicks, Trace trace) {
+        double[] velocity = trace.velocity;
+        velocity[0] = speed * Math.cos(angle);
+        velocity[1] = speed * Math.sin(angle);
+        model.launch(velocity);
+
+        double x = 0;
+        double y = 0;
+        double apex = 0;
+
+        trace.ticks = Double.MAX_VALUE;
+
+        for (int tick = 1; tick <= maxTicks; tick++) {
+            double previousX = x;
+            double previousY = y;
+
+            x += velocity[0];
+            y += velocity[1];
+
+            model.advance(velocity);
+
+            if (y > apex) {
+                apex = y;
+            }
+
+            if (x >= distance) {
+                double fraction = (distance - previousX) / (x - previousX);
+                trace.ticks = tick - 1 + fraction;
+                trace.apex = apex;
+                return previousY + (y - previousY) * fraction;
+            }
+
+            if (velocity[1] < 0 && y < -distance) {
+                break;
+            }
+        }
+
+        trace.apex = apex;
+        return Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Записывает в out пары (x, y) по тикам, начиная с точки выстрела. Дуга обрывается,
+     * когда уходит дальше maxDistance, ниже minHeight или заполняет out
+     *
+     * @return число записанных точек
+     */
+    public static int arc(MotionModel model, double horizontalVelocity, double verticalVelocity,
+                          double maxDistance, double minHeight, double[] velocity, float[] out) {
+        velocity[0] = horizontalVelocity;
+        velocity[1] = verticalVelocity;
+        model.launch(velocity);
+
+        double x = 0;
+        double y = 0;
+        int capacity = out.length / 2;
+        int count = 0;
+
+        while (count < capacity) {
+            out[count * 2] = (float) x;
+            out[count * 2 + 1] = (float) y;
+            count++;
+
+            if (x > maxDistance || y < minHeight) {
+                break;
+            }
+
+            x += velocity[0];
+            y += velocity[1];
+            model.advance(velocity);
+        }
+
+        return count;
+    }
+}
@@ -9,6 +9,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.util.Vector;
+import org.yudev.ballistics.LaunchOptimizer;
 import org.yudev.projectiletesting.utils.ProjectilePhysics;
 import org.yudev.projectiletesting.utils.ProjectileType;
 
@@ -47,8 +48,11 @@ public abstract class AbstractProjectileTest {
                         Math.pow(targetLocation.getZ() - launchLocation.getZ(), 2)
         );
 
-        double launchAngle = ProjectilePhysics.calculateOptimalLaunchAngle(
+        LaunchOptimizer.Solution solution = ProjectilePhysics.optimizeLaunch(
                 horizontalDistance, heightDifference, projectileType);
+        double launchAngle = solution != null
+                ? solution.getAngleRadians()
+                : ProjectilePhysics.calculateHeuristicLaunchAngle(horizontalDistance, heightDifference);
 
         Vector horizontalDirection = new Vector(
                 targetLocation.getX() - launchLocation.getX(),
@@ -62,14 +66,19 @@ public abstract class AbstractProjectileTest {
 
         this.initialDirection = this.direction.clone();
 
-        this.currentVelocity = ProjectilePhysics.estimateInitialVelocity(
-                horizontalDistance, heightDifference, projectileType);
+        this.currentVelocity = solution != null
+                ? solution.getVelocity()
+                : ProjectilePhysics.estimateInitialVelocity(horizontalDistance, heightDifference, projectileType);
 
         player.sendMessage(ChatColor.YELLOW + "Тип снаряда: " + projectileType.getDisplayName());
         player.sendMessage(ChatColor.YELLOW + "Расчетная начальная скорость: " +
                 String.format("%.2f", currentVelocity) + " блоков/тик");
         player.sendMessage(ChatColor.YELLOW + "Угол запуска: " +
                 String.format("%.1f", Math.toDegrees(launchAngle)) + " градусов");
+        if (solution != null) {
+            player.sendMessage(ChatColor.YELLOW + "Расчетное время полета: " +
+                    String.format("%.0f", solution.getFlightTicks()) + " тиков");
+        }
 
         if (heightDifference < 0) {
             player.sendMessage(ChatColor.YELLOW + "Запуск сверху вниз. Цель на " +
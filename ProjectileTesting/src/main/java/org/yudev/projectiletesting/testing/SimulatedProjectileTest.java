@@ -9,14 +9,19 @@ import org.bukkit.metadata.FixedMetadataValue;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.util.Vector;
+import org.yudev.ballistics.TrajectoryKernel;
 import org.yudev.projectiletesting.utils.ProjectilePhysics;
 import org.yudev.projectiletesting.utils.ProjectileType;
+import org.yudev.projectiletesting.utils.TerrainSnapshot;
+
+import java.util.Arrays;
 
 public class SimulatedProjectileTest extends AbstractProjectileTest {
     private double simulatedVelocity;
     private double actualDistance;
     private boolean testComplete = false;
     private final int MAX_VISUALIZATION_TICKS = 200;
+    private TerrainSnapshot terrain;
 
     public SimulatedProjectileTest(JavaPlugin plugin, Player player, Location targetLocation,
                                    ProjectileType projectileType) {
@@ -28,16 +33,23 @@ public class SimulatedProjectileTest extends AbstractProjectileTest {
         player.sendMessage(ChatColor.YELLOW + "Начинаю моделирование траектории " +
                 projectileType.getDisplayName() + "...");
 
+        double horizontalDistance = Math.hypot(
+                targetLocation.getX() - launchLocation.getX(),
+                targetLocation.getZ() - launchLocation.getZ());
+        terrain = TerrainSnapshot.capture(player.getWorld(), launchLocation,
+                direction, Math.max(32, horizontalDistance * 2));
+
         new BukkitRunnable() {
             @Override
             public void run() {
                 try {
                     simulatedVelocity = findOptimalVelocity();
+                    final float[] arc = simulateArc(simulatedVelocity);
 
                     new BukkitRunnable() {
                         @Override
                         public void run() {
-                            onSimulationComplete(simulatedVelocity);
+                            onSimulationComplete(simulatedVelocity, arc);
                         }
                     }.runTask(plugin);
 
@@ -157,57 +169,40 @@ public class SimulatedProjectileTest extends AbstractProjectileTest {
     }
 
     private SimulationResult simulateTrajectory(double velocity) {
-        Vector position = launchLocation.toVector();
-        Vector vel = direction.clone().multiply(velocity);
-
-        double gravity = projectileType.getGravity();
-        double drag = projectileType.getDrag();
-        boolean dragBeforeAcceleration = projectileType.isDragBeforeAcceleration();
-
-        double minDistance = Double.MAX_VALUE;
-        Vector closestPoint = null;
-        int tickAtClosestPoint = 0;
-
+        float[] arc = simulateArc(velocity);
         Vector horizontalDirection = new Vector(direction.getX(), 0, direction.getZ()).normalize();
 
-        for (int tick = 0; tick < MAX_VISUALIZATION_TICKS; tick++) {
-            position.add(vel);
-
-            if (dragBeforeAcceleration) {
-                vel.multiply(1.0 - drag);
-                vel.setY(vel.getY() - gravity);
-            } else {
-                vel.setY(vel.getY() - gravity);
-                vel.multiply(1.0 - drag);
-            }
-
-            double distance = position.distance(targetLocation.toVector());
-            if (distance < minDistance) {
-                minDistance = distance;
-                closestPoint = position.clone();
-                tickAtClosestPoint = tick;
-            }
+        double minDistanceSquared = Double.MAX_VALUE;
+        int closestTick = -1;
 
-            if (tick > tickAtClosestPoint + 20) {
-                break;
-            }
+        for (int tick = 1; tick < arc.length / 2; tick++) {
+            double dx = launchLocation.getX() + horizontalDirection.getX() * arc[tick * 2] - targetLocation.getX();
+            double dy = launchLocation.getY() + arc[tick * 2 + 1] - targetLocation.getY();
+            double dz = launchLocation.getZ() + horizontalDirection.getZ() * arc[tick * 2] - targetLocation.getZ();
 
-            if (position.getY() <= 0) {
-                break;
+            double distanceSquared = dx * dx + dy * dy + dz * dz;
+            if (distanceSquared < minDistanceSquared) {
+                minDistanceSquared = distanceSquared;
+                closestTick = tick;
             }
         }
 
-        boolean isOvershoot = false;
-        if (closestPoint != null) {
-            Vector targetToClosest = closestPoint.clone().subtract(targetLocation.toVector());
-            double projection = targetToClosest.clone().setY(0).dot(horizontalDirection);
-            isOvershoot = projection > 0;
+        if (closestTick < 0) {
+            return new SimulationResult(Double.MAX_VALUE, false, null);
         }
 
-        return new SimulationResult(minDistance, isOvershoot, closestPoint);
+        Vector closestPoint = new Vector(
+                launchLocation.getX() + horizontalDirection.getX() * arc[closestTick * 2],
+                launchLocation.getY() + arc[closestTick * 2 + 1],
+                launchLocation.getZ() + horizontalDirection.getZ() * arc[closestTick * 2]);
+
+        Vector targetToClosest = closestPoint.clone().subtract(targetLocation.toVector());
+        boolean isOvershoot = targetToClosest.setY(0).dot(horizontalDirection) > 0;
+
+        return new SimulationResult(Math.sqrt(minDistanceSquared), isOvershoot, closestPoint);
     }
 
-    private void onSimulationComplete(double velocity) {
+    private void onSimulationComplete(double velocity, float[] arc) {
         currentVelocity = velocity;
 
         player.sendMessage(ChatColor.GREEN + "Моделирование завершено!");
@@ -216,7 +211,7 @@ public class SimulatedProjectileTest extends AbstractProjectileTest {
         player.sendMessage(ChatColor.GRAY + "Используемая гравитация: " +
                 String.format("%.3f", projectileType.getGravity()) + " блоков/тик²");
 
-        visualizeSimulatedTrajectory(velocity);
+        visualizeSimulatedTrajectory(arc);
 
         new BukkitRunnable() {
             @Override
@@ -226,7 +221,47 @@ public class SimulatedProjectileTest extends AbstractProjectileTest {
         }.runTaskLater(plugin, 20L);
     }
 
-    private void visualizeSimulatedTrajectory(double velocity) {
+    /**
+     * Дуга в вертикальной плоскости выстрела: пары (горизонтальное смещение, высота) по тикам,
+     * начиная с точки выстрела. Обрывается в точке столкновения с рельефом
+     */
+    private float[] simulateArc(double velocity) {
+        float[] arc = new float[MAX_VISUALIZATION_TICKS * 2];
+        int length = TrajectoryKernel.arc(projectileType.getBallisticProfile(),
+                Math.hypot(direction.getX(), direction.getZ()) * velocity,
+                direction.getY() * velocity,
+                Double.MAX_VALUE, -launchLocation.getY() - 1, new double[2], arc);
+
+        Vector horizontalDirection = new Vector(direction.getX(), 0, direction.getZ()).normalize();
+
+        for (int tick = 1; tick < length; tick++) {
+            double horizontal = arc[tick * 2 - 2];
+            double vertical = arc[tick * 2 - 1];
+            double horizontalStep = arc[tick * 2] - horizontal;
+            double verticalStep = arc[tick * 2 + 1] - vertical;
+
+            double hit = terrain.traceSegment(
+                    launchLocation.getX() + horizontalDirection.getX() * horizontal,
+                    launchLocation.getY() + vertical,
+                    launchLocation.getZ() + horizontalDirection.getZ() * horizontal,
+                    launchLocation.getX() + horizontalDirection.getX() * (horizontal + horizontalStep),
+                    launchLocation.getY() + vertical + verticalStep,
+                    launchLocation.getZ() + horizontalDirection.getZ() * (horizontal + horizontalStep));
+
+            if (hit >= 0) {
+                arc[tick * 2] = (float) (horizontal + horizontalStep * hit);
+                arc[tick * 2 + 1] = (float) (vertical + verticalStep * hit);
+                return Arrays.copyOf(arc, tick * 2 + 2);
+            }
+        }
+
+        return Arrays.copyOf(arc, length * 2);
+    }
+
+    private void visualizeSimulatedTrajectory(final float[] arc) {
+        final int arcTicks = arc.length / 2;
+        final Vector horizontalDirection = new Vector(direction.getX(), 0, direction.getZ()).normalize();
+
         new BukkitRunnable() {
             int count = 0;
 
@@ -239,52 +274,21 @@ public class SimulatedProjectileTest extends AbstractProjectileTest {
 
                 count++;
 
-                Vector position = launchLocation.toVector();
-                Vector initialVelocity = direction.clone().multiply(velocity);
-                Vector currentVelocity = initialVelocity.clone();
-
-                double gravity = projectileType.getGravity();
-                double drag = projectileType.getDrag();
-                boolean dragBeforeAcceleration = projectileType.isDragBeforeAcceleration();
-
-                for (int tick = 0; tick < MAX_VISUALIZATION_TICKS; tick++) {
-                    if (tick % 3 != 0) {
-                        position.add(currentVelocity);
-
-                        if (dragBeforeAcceleration) {
-                            currentVelocity.multiply(1.0 - drag);
-                            currentVelocity.setY(currentVelocity.getY() - gravity);
-                        } else {
-                            currentVelocity.setY(currentVelocity.getY() - gravity);
-                            currentVelocity.multiply(1.0 - drag);
-                        }
-                        continue;
-                    }
-
-                    position.add(currentVelocity);
-
-                    if (dragBeforeAcceleration) {
-                        currentVelocity.multiply(1.0 - drag);
-                        currentVelocity.setY(currentVelocity.getY() - gravity);
-                    } else {
-                        currentVelocity.setY(currentVelocity.getY() - gravity);
-                        currentVelocity.multiply(1.0 - drag);
-                    }
+                for (int tick = 0; tick < arcTicks; tick += 3) {
+                    double x = launchLocation.getX() + horizontalDirection.getX() * arc[tick * 2];
+                    double y = launchLocation.getY() + arc[tick * 2 + 1];
+                    double z = launchLocation.getZ() + horizontalDirection.getZ() * arc[tick * 2];
 
                     player.getWorld().spawnParticle(
                             Particle.VILLAGER_HAPPY,
-                            position.getX(), position.getY(), position.getZ(),
+                            x, y, z,
                             1, 0, 0, 0, 0
                     );
 
-                    Location particleLocation = new Location(player.getWorld(),
-                            position.getX(), position.getY(), position.getZ());
-                    if (!particleLocation.getBlock().isPassable()) {
-                        break;
-                    }
-
-                    double distance = position.distance(targetLocation.toVector());
-                    if (distance < 0.5) {
+                    double dx = x - targetLocation.getX();
+                    double dy = y - targetLocation.getY();
+                    double dz = z - targetLocation.getZ();
+                    if (dx * dx + dy * dy + dz * dz < 0.25) {
                         player.getWorld().spawnParticle(
                                 Particle.VILLAGER_HAPPY,
                                 targetLocation,
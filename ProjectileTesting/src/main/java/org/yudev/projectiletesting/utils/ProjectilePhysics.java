@@ -2,12 +2,38 @@ package org.yudev.projectiletesting.utils;
 
 import org.bukkit.Location;
 import org.bukkit.util.Vector;
+import org.yudev.ballistics.BallisticProfile;
+import org.yudev.ballistics.LaunchOptimizer;
 
 
 public class ProjectilePhysics {
+    private static final LaunchOptimizer LAUNCH_OPTIMIZER = new LaunchOptimizer(
+            Math.toRadians(10), Math.toRadians(70), 2.0);
+
+    /**
+     * Угол и скорость с минимальным временем полета; null для TNT и недостижимых целей
+     */
+    public static LaunchOptimizer.Solution optimizeLaunch(double horizontalDistance, double heightDifference,
+                                                          ProjectileType projectileType) {
+        BallisticProfile profile = projectileType.getBallisticProfile();
+        if (!profile.isSimulationAccurate()) {
+            return null;
+        }
+
+        return LAUNCH_OPTIMIZER.solve(profile, horizontalDistance, heightDifference, profile.getMaxVelocity());
+    }
 
     public static double calculateOptimalLaunchAngle(double horizontalDistance, double heightDifference,
                                                      ProjectileType projectileType) {
+        LaunchOptimizer.Solution solution = optimizeLaunch(horizontalDistance, heightDifference, projectileType);
+        if (solution != null) {
+            return solution.getAngleRadians();
+        }
+
+        return calculateHeuristicLaunchAngle(horizontalDistance, heightDifference);
+    }
+
+    public static double calculateHeuristicLaunchAngle(double horizontalDistance, double heightDifference) {
         double baseAngle = 45;
         if (heightDifference <= 0) {
 
@@ -2,6 +2,7 @@ package org.yudev.projectiletesting.utils;
 
 import org.bukkit.Material;
 import org.bukkit.entity.EntityType;
+import org.yudev.ballistics.BallisticProfile;
 
 public enum ProjectileType {
     ARROW(
@@ -9,68 +10,49 @@ public enum ProjectileType {
             Material.ARROW,
             EntityType.ARROW,
             0.05,
-            0.05,
-            0.01,
-            5.00,
             Material.ARROW,
-            false
+            BallisticProfile.ARROW
     ),
     POTION(
             "Зелье",
             Material.SPLASH_POTION,
             EntityType.SPLASH_POTION,
             0.03,
-            0.05,
-            0.01,
-            3.00,
             Material.SPLASH_POTION,
-            true
+            BallisticProfile.POTION
     ),
     TRIDENT(
             "Трезубец",
             Material.TRIDENT,
             EntityType.TRIDENT,
             0.05,
-            0.05,
-            0.01,
-            5.00,
             Material.TRIDENT,
-            false
+            BallisticProfile.TRIDENT
     ),
     TNT(
             "Динамит",
             Material.TNT,
             EntityType.PRIMED_TNT,
             0.04,
-            0.035,
-            0.02,
-            2.00,
             Material.TNT,
-            true
+            BallisticProfile.TNT
     );
 
     private final String displayName;
     private final Material itemMaterial;
     private final EntityType entityType;
     private final double acceleration;
-    private final double gravity;
-    private final double drag;
-    private final double terminalVelocity;
     private final Material iconMaterial;
-    private final boolean dragBeforeAcceleration;
+    private final BallisticProfile ballisticProfile;
 
     ProjectileType(String displayName, Material itemMaterial, EntityType entityType,
-                   double acceleration, double gravity, double drag, double terminalVelocity,
-                   Material iconMaterial, boolean dragBeforeAcceleration) {
+                   double acceleration, Material iconMaterial, BallisticProfile ballisticProfile) {
         this.displayName = displayName;
         this.itemMaterial = itemMaterial;
         this.entityType = entityType;
         this.acceleration = acceleration;
-        this.gravity = gravity;
-        this.drag = drag;
-        this.terminalVelocity = terminalVelocity;
         this.iconMaterial = iconMaterial;
-        this.dragBeforeAcceleration = dragBeforeAcceleration;
+        this.ballisticProfile = ballisticProfile;
     }
 
     public String getDisplayName() {
@@ -90,15 +72,15 @@ public enum ProjectileType {
     }
 
     public double getGravity() {
-        return gravity;
+        return ballisticProfile.getGravity();
     }
 
     public double getDrag() {
-        return drag;
+        return ballisticProfile.getDrag();
     }
 
     public double getTerminalVelocity() {
-        return terminalVelocity;
+        return ballisticProfile.getMaxVelocity();
     }
 
     public Material getIconMaterial() {
@@ -106,6 +88,13 @@ public enum ProjectileType {
     }
 
     public boolean isDragBeforeAcceleration() {
-        return dragBeforeAcceleration;
+        return ballisticProfile.isDragBeforeAcceleration();
+    }
+
+    /**
+     * Физика снаряда из общей таблицы ballistics-core
+     */
+    public BallisticProfile getBallisticProfile() {
+        return ballisticProfile;
     }
 }
\ No newline at end of file
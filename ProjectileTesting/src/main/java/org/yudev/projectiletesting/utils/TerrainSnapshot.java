@@ -0,0 +1,139 @@
+package org.yudev.projectiletesting.utils;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+
+/**
+ * Снимок чанков вдоль линии выстрела. Снимается один раз в основном потоке,
+ * после чего проверки столкновений с блоками можно выполнять из любого потока
+ */
+public class TerrainSnapshot {
+    private final int minChunkX;
+    private final int minChunkZ;
+    private final int width;
+    private final int depth;
+    private final ChunkSnapshot[] chunks;
+    private final int maxHeight;
+
+    private TerrainSnapshot(int minChunkX, int minChunkZ, int width, int depth,
+                            ChunkSnapshot[] chunks, int maxHeight) {
+        this.minChunkX = minChunkX;
+        this.minChunkZ = minChunkZ;
+        this.width = width;
+        this.depth = depth;
+        this.chunks = chunks;
+        this.maxHeight = maxHeight;
+    }
+
+    /**
+     * Снимает загруженные чанки, через которые проходит горизонтальная проекция траектории.
+     * Должен вызываться в основном потоке; незагруженные чанки считаются пустыми
+     */
+    public static TerrainSnapshot capture(World world, Location origin, Vector horizontalDirection,
+                                          double maxDistance) {
+        Vector step = horizontalDirection.clone().setY(0).normalize().multiply(0.5);
+        int steps = (int) Math.ceil(maxDistance / 0.5);
+
+        double endX = origin.getX() + step.getX() * steps;
+        double endZ = origin.getZ() + step.getZ() * steps;
+
+        int minChunkX = (int) Math.floor(Math.min(origin.getX(), endX)) >> 4;
+        int minChunkZ = (int) Math.floor(Math.min(origin.getZ(), endZ)) >> 4;
+        int maxChunkX = (int) Math.floor(Math.max(origin.getX(), endX)) >> 4;
+        int maxChunkZ = (int) Math.floor(Math.max(origin.getZ(), endZ)) >> 4;
+
+        int width = maxChunkX - minChunkX + 1;
+        int depth = maxChunkZ - minChunkZ + 1;
+        ChunkSnapshot[] chunks = new ChunkSnapshot[width * depth];
+
+        double x = origin.getX();
+        double z = origin.getZ();
+        for (int i = 0; i <= steps; i++) {
+            int chunkX = (int) Math.floor(x) >> 4;
+            int chunkZ = (int) Math.floor(z) >> 4;
+            int index = (chunkX - minChunkX) * depth + (chunkZ - minChunkZ);
+
+            if (chunks[index] == null && world.isChunkLoaded(chunkX, chunkZ)) {
+                chunks[index] = world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false);
+            }
+
+            x += step.getX();
+            z += step.getZ();
+        }
+
+        return new TerrainSnapshot(minChunkX, minChunkZ, width, depth, chunks, world.getMaxHeight());
+    }
+
+    public boolean isSolid(int x, int y, int z) {
+        if (y < 0) {
+            return true;
+        }
+        if (y >= maxHeight) {
+            return false;
+        }
+
+        int chunkX = (x >> 4) - minChunkX;
+        int chunkZ = (z >> 4) - minChunkZ;
+        if (chunkX < 0 || chunkX >= width || chunkZ < 0 || chunkZ >= depth) {
+            return false;
+        }
+
+        ChunkSnapshot chunk = chunks[chunkX * depth + chunkZ];
+        return chunk != null && chunk.getBlockType(x & 15, y, z & 15).isSolid();
+    }
+
+    /**
+     * Обход вокселей вдоль отрезка (Amanatides-Woo).
+     *
+     * @return доля отрезка до входа в первый твердый блок, или -1, если отрезок свободен.
+     * Блок, в котором начинается отрезок, не проверяется
+     */
+    public double traceSegment(double x0, double y0, double z0, double x1, double y1, double z1) {
+        int x = (int) Math.floor(x0);
+        int y = (int) Math.floor(y0);
+        int z = (int) Math.floor(z0);
+
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double dz = z1 - z0;
+
+        int stepX = dx > 0 ? 1 : dx < 0 ? -1 : 0;
+        int stepY = dy > 0 ? 1 : dy < 0 ? -1 : 0;
+        int stepZ = dz > 0 ? 1 : dz < 0 ? -1 : 0;
+
+        double tDeltaX = stepX != 0 ? Math.abs(1.0 / dx) : Double.POSITIVE_INFINITY;
+        double tDeltaY = stepY != 0 ? Math.abs(1.0 / dy) : Double.POSITIVE_INFINITY;
+        double tDeltaZ = stepZ != 0 ? Math.abs(1.0 / dz) : Double.POSITIVE_INFINITY;
+
+        double tMaxX = stepX > 0 ? (x + 1 - x0) / dx : stepX < 0 ? (x - x0) / dx : Double.POSITIVE_INFINITY;
+        double tMaxY = stepY > 0 ? (y + 1 - y0) / dy : stepY < 0 ? (y - y0) / dy : Double.POSITIVE_INFINITY;
+        double tMaxZ = stepZ > 0 ? (z + 1 - z0) / dz : stepZ < 0 ? (z - z0) / dz : Double.POSITIVE_INFINITY;
+
+        while (true) {
+            double t;
+            if (tMaxX < tMaxY && tMaxX < tMaxZ) {
+                t = tMaxX;
+                x += stepX;
+                tMaxX += tDeltaX;
+            } else if (tMaxY < tMaxZ) {
+                t = tMaxY;
+                y += stepY;
+                tMaxY += tDeltaY;
+            } else {
+                t = tMaxZ;
+                z += stepZ;
+                tMaxZ += tDeltaZ;
+            }
+
+            if (t > 1) {
+                return -1;
+            }
+
+            if (isSolid(x, y, z)) {
+                return t;
+            }
+        }
+    }
+}
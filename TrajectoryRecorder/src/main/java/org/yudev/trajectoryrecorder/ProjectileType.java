@@ -1,8 +0,0 @@
-package org.yudev.trajectoryrecorder;
-
-public enum ProjectileType {
-    ARROW,
-    POTION,
-    TRIDENT,
-    TNT
-}
\ No newline at end of file
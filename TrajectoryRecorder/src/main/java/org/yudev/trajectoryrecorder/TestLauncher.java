@@ -9,6 +9,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.entity.TNTPrimed;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.util.Vector;
+import org.yudev.ballistics.BallisticProfile;
 
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -137,7 +138,7 @@ public class TestLauncher {
                 ((TNTPrimed) tnt).setFuseTicks(800);
             }
 
-            TrajectoryRecorder recorder = new TrajectoryRecorder(plugin, tnt, ProjectileType.TNT, sessionId, speed, launchAngle);
+            TrajectoryRecorder recorder = new TrajectoryRecorder(plugin, tnt, BallisticProfile.TNT, sessionId, speed, launchAngle);
             recorder.startRecording();
         }
 
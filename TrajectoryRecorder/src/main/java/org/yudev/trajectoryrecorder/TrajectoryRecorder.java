@@ -7,6 +7,7 @@ import org.bukkit.entity.Projectile;
 import org.bukkit.entity.TNTPrimed;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.util.Vector;
+import org.yudev.ballistics.BallisticProfile;
 
 import java.io.File;
 import java.io.FileWriter;
@@ -20,7 +21,7 @@ import java.util.Locale;
 public class TrajectoryRecorder {
     private final TrajectoryRecorderPlugin plugin;
     private final Entity projectile;
-    private final ProjectileType projectileType;
+    private final BallisticProfile projectileType;
     private final List<Vector> positions = new ArrayList<>();
     private final List<Vector> velocities = new ArrayList<>();
     private final long startTime;
@@ -30,16 +31,16 @@ public class TrajectoryRecorder {
     private final double initialSpeed;
     private final double launchAngle;
 
-    public TrajectoryRecorder(TrajectoryRecorderPlugin plugin, Entity projectile, ProjectileType projectileType) {
+    public TrajectoryRecorder(TrajectoryRecorderPlugin plugin, Entity projectile, BallisticProfile projectileType) {
         this(plugin, projectile, projectileType, null, -1, 45.0);
     }
 
-    public TrajectoryRecorder(TrajectoryRecorderPlugin plugin, Entity projectile, ProjectileType projectileType,
+    public TrajectoryRecorder(TrajectoryRecorderPlugin plugin, Entity projectile, BallisticProfile projectileType,
                               String testId, double initialSpeed) {
         this(plugin, projectile, projectileType, testId, initialSpeed, 45.0);
     }
 
-    public TrajectoryRecorder(TrajectoryRecorderPlugin plugin, Entity projectile, ProjectileType projectileType,
+    public TrajectoryRecorder(TrajectoryRecorderPlugin plugin, Entity projectile, BallisticProfile projectileType,
                               String testId, double initialSpeed, double launchAngleDegrees) {
         this.plugin = plugin;
         this.projectile = projectile;